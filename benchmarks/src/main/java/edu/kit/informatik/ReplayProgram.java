@@ -0,0 +1,41 @@
+package edu.kit.informatik;
+
+import java.util.List;
+
+/**
+ * Dummy program answering every command with the next output of a script, so
+ * benchmarks only measure the TestSuite.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class ReplayProgram {
+
+    private static List<String> script;
+
+    private ReplayProgram() {
+    }
+
+    /**
+     * Setter of the outputs to replay.
+     *
+     * @param outputs Outputs to print, one per command.
+     */
+    public static void setScript(final List<String> outputs) {
+        script = outputs;
+    }
+
+    /**
+     * Prints the next output of the script for every command until "quit".
+     *
+     * @param args Ignored.
+     */
+    public static void main(final String[] args) {
+        int next = 0;
+        String line = Terminal.readLine();
+        while (line != null && !line.equals("quit")) {
+            Terminal.printLine(script.get(next++));
+            line = Terminal.readLine();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package edu.kit.informatik;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * Minimal stand-in of the Terminal class the tested programs use for input
+ * and output.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class Terminal {
+
+    private static final BufferedReader IN = new BufferedReader(new InputStreamReader(System.in));
+
+    private Terminal() {
+    }
+
+    /**
+     * Prints an object followed by a line separator.
+     *
+     * @param object Object to print.
+     */
+    public static void printLine(final Object object) {
+        System.out.println(object);
+    }
+
+    /**
+     * Reads a line from standard input.
+     *
+     * @return Line without the line separator or null if the end was reached.
+     */
+    public static String readLine() {
+        try {
+            return IN.readLine();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package edu.kit.informatik.tests.testsuite.benchmarks;
+
+import edu.kit.informatik.tests.testsuite.TestFile;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Locates the .test-Files in the tests directory and generates synthetic ones.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+final class Fixtures {
+
+    /**
+     * Prefix of fixture names generated with the number of cases following,
+     * e.g. "synthetic-100000".
+     */
+    static final String SYNTHETIC = "synthetic-";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Resolves the name of a fixture.
+     *
+     * @param name Name of a file in the tests directory or synthetic fixture.
+     * @return File containing the fixture.
+     * @throws IOException Will be thrown if generating the fixture failed.
+     */
+    static File resolve(final String name) throws IOException {
+        if (name.startsWith(SYNTHETIC)) {
+            return generate(Integer.parseInt(name.substring(SYNTHETIC.length())));
+        }
+        final File file = new File(testsDirectory(), name);
+        if (!file.isFile()) {
+            throw new IOException("Fixture not found: " + file.getAbsolutePath());
+        }
+        return file;
+    }
+
+    /**
+     * Creates an empty temporary directory.
+     *
+     * @return New directory.
+     * @throws IOException Will be thrown if creating failed.
+     */
+    static File tempDirectory() throws IOException {
+        final File dir = Files.createTempDirectory("testsuite-bench").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    /**
+     * Converts the expectations of a file into outputs matching them.
+     *
+     * @param test Parsed test file.
+     * @return Outputs to print, one per case.
+     */
+    static List<String> script(final TestFile test) {
+        final List<String> outputs = new ArrayList<>(test.getExpectations().size());
+        for (final String expectation : test.getExpectations()) {
+            String value = expectation;
+            while (value.startsWith("!C") || value.startsWith("!U")) {
+                value = value.substring(2);
+            }
+            if (value.equals("00err")) {
+                outputs.add("Error, replayed error");
+            } else if (value.startsWith("!N")) {
+                outputs.add(value.substring(value.indexOf(' ') + 1));
+            } else if (value.startsWith("!R")) {
+                throw new IllegalArgumentException("Can't replay regex expectation " + value);
+            } else {
+                outputs.add(value);
+            }
+        }
+        return outputs;
+    }
+
+    private static File testsDirectory() {
+        final String configured = System.getProperty("testsuite.tests");
+        if (configured != null) {
+            return new File(configured);
+        }
+        final File parent = new File("../tests");
+        return parent.isDirectory() ? parent : new File("tests");
+    }
+
+    private static File generate(final int cases) throws IOException {
+        final File file = new File(tempDirectory(), SYNTHETIC + cases + ".test");
+        file.deleteOnExit();
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), Charset.defaultCharset()))) {
+            out.write("<\"tests\\test.graph\">\n#" + cases + " generated cases\n");
+            for (int i = 0; i < cases; i++) {
+                switch (i % 5) {
+                    case 0:
+                        out.write("\"node" + i + " next" + i + "\" : \"route node" + i + ";next" + i + ";route\"\n");
+                        break;
+                    case 1:
+                        out.write(i + " : \"search node" + i + ";next" + i + ";time\"\n");
+                        break;
+                    case 2:
+                        out.write("00err : \"insert node" + i + ";null\"\n");
+                        break;
+                    case 3:
+                        out.write("\"!COk\" : \"insert node" + i + ";next" + i + ";1;2\"\n");
+                        break;
+                    default:
+                        out.write("\"node" + i + "\nnext" + i + "\nlast" + i + "\" : \"nodes n" + i + "\"\n");
+                        break;
+                }
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,157 @@
+package edu.kit.informatik.tests.testsuite.benchmarks;
+
+import edu.kit.informatik.tests.testsuite.CaseSource;
+import edu.kit.informatik.tests.testsuite.CommandChannel;
+import edu.kit.informatik.tests.testsuite.ExpectionOutputStream;
+import edu.kit.informatik.tests.testsuite.TestFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching of output in {@link ExpectionOutputStream#write(byte[], int, int)}
+ * and {@link ExpectionOutputStream#finish()}.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MatcherBenchmark {
+
+    private static final int BATCH = 10000;
+
+    /**
+     * Kind of expectation to match.
+     */
+    @Param({"exact", "ignoreCase", "error", "multiLine", "unordered", "regex", "numeric"})
+    public String kind;
+
+    private CaseSource cases;
+    private byte[] output;
+    private File logFile;
+    private ExpectionOutputStream stream;
+
+    /**
+     * Encodes expectations and output of the kind.
+     *
+     * @throws IOException    Will be thrown if the log directory couldn't be
+     *                        created.
+     * @throws ParseException Never, the cases are already parsed.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        final String expectation;
+        final String printed;
+        switch (kind) {
+            case "ignoreCase":
+                expectation = "!Cbb aa c d";
+                printed = "bB Aa C d";
+                break;
+            case "error":
+                expectation = "00err";
+                printed = "Error, no such vertex";
+                break;
+            case "multiLine":
+                expectation = "bB Aa C d\nbB Aa d\nbB C Aa d\nbB C d";
+                printed = expectation.replace("\n", System.lineSeparator());
+                break;
+            case "unordered":
+                expectation = "!UbB Aa C d\nbB Aa d\nbB C Aa d\nbB C d";
+                printed = "bB C d\nbB Aa d\nbB Aa C d\nbB C Aa d".replace("\n", System.lineSeparator());
+                break;
+            case "regex":
+                expectation = "!R(\\w+ )+\\w+";
+                printed = "bB Aa C d";
+                break;
+            case "numeric":
+                expectation = "!N0.001 3.1416";
+                printed = "3.14159";
+                break;
+            default:
+                expectation = "bB Aa C d";
+                printed = expectation;
+                break;
+        }
+        cases = new TestFile(null, Collections.nCopies(BATCH, "x"), Collections.nCopies(BATCH, expectation),
+                null, 0).cases();
+        for (int i = 0; i < BATCH; i++) {
+            cases.get(i);
+        }
+        output = (printed + System.lineSeparator()).getBytes(Charset.defaultCharset());
+        logFile = new File(Fixtures.tempDirectory(), "matcherTest.log");
+        logFile.deleteOnExit();
+    }
+
+    /**
+     * Creates a stream expecting a batch of outputs.
+     *
+     * @throws IOException Will be thrown if the log file couldn't be created.
+     */
+    @Setup(Level.Invocation)
+    public void createStream() throws IOException {
+        stream = new ExpectionOutputStream(new CommandChannel(cases), NullOutputStream.INSTANCE, logFile);
+    }
+
+    /**
+     * Closes the stream of the last batch.
+     *
+     * @throws IOException Will be thrown if closing the log failed.
+     */
+    @TearDown(Level.Invocation)
+    public void closeStream() throws IOException {
+        stream.close();
+    }
+
+    /**
+     * Writes and ends one matching output per expectation.
+     *
+     * @throws IOException Will be thrown if logging failed.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void write() throws IOException {
+        for (int i = 0; i < BATCH; i++) {
+            stream.write(output, 0, output.length);
+            stream.finish();
+        }
+    }
+
+    /**
+     * Stream discarding everything.
+     */
+    private static final class NullOutputStream extends OutputStream {
+        private static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    }
+}
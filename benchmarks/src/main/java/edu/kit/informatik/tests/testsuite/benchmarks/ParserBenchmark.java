@@ -0,0 +1,88 @@
+package edu.kit.informatik.tests.testsuite.benchmarks;
+
+import edu.kit.informatik.tests.testsuite.TestFile;
+import edu.kit.informatik.tests.testsuite.TestFileParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of .test-Files, from source and from their compiled form.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParserBenchmark {
+
+    /**
+     * Fixture to parse.
+     */
+    @Param({"publicTest.test", "route.test", "synthetic-100000"})
+    public String fixture;
+
+    private File file;
+    private File cacheDir;
+
+    /**
+     * Resolves the fixture and stores its compiled form.
+     *
+     * @throws IOException    Will be thrown if the fixture couldn't be read.
+     * @throws ParseException Will be thrown if the fixture is bad formatted.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        file = Fixtures.resolve(fixture);
+        cacheDir = Fixtures.tempDirectory();
+        TestFileParser.load(file, cacheDir);
+    }
+
+    /**
+     * Parses the source of the fixture.
+     *
+     * @return Parsed file.
+     * @throws IOException    Will be thrown if the fixture couldn't be read.
+     * @throws ParseException Will be thrown if the fixture is bad formatted.
+     */
+    @Benchmark
+    public TestFile parse() throws IOException, ParseException {
+        try (Reader in = new InputStreamReader(new FileInputStream(file), Charset.defaultCharset())) {
+            return TestFileParser.parse(in);
+        }
+    }
+
+    /**
+     * Loads the fixture from its compiled form.
+     *
+     * @return Parsed file.
+     * @throws IOException    Will be thrown if the fixture couldn't be read.
+     * @throws ParseException Will be thrown if the fixture is bad formatted.
+     */
+    @Benchmark
+    public TestFile loadCompiled() throws IOException, ParseException {
+        return TestFileParser.load(file, cacheDir);
+    }
+}
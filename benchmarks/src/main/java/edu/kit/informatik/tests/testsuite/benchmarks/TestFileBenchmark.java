@@ -0,0 +1,98 @@
+package edu.kit.informatik.tests.testsuite.benchmarks;
+
+import edu.kit.informatik.ReplayProgram;
+import edu.kit.informatik.tests.testsuite.CaseStream;
+import edu.kit.informatik.tests.testsuite.FileResult;
+import edu.kit.informatik.tests.testsuite.StreamRouter;
+import edu.kit.informatik.tests.testsuite.TestFile;
+import edu.kit.informatik.tests.testsuite.TestFileParser;
+import edu.kit.informatik.tests.testsuite.TestSuite;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Complete runs of {@link TestSuite#testFile(Class, String, TestFile, File)} with
+ * {@link ReplayProgram} as tested program.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TestFileBenchmark {
+
+    /**
+     * Fixture to test.
+     */
+    @Param({"publicTest.test", "route.test", "search.test", "treeGraph.test", "synthetic-10000"})
+    public String fixture;
+
+    private TestFile test;
+    private File source;
+    private File logFile;
+
+    /**
+     * Parses the fixture and prepares the replayed outputs.
+     *
+     * @throws IOException    Will be thrown if the fixture couldn't be read.
+     * @throws ParseException Will be thrown if the fixture is bad formatted.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        StreamRouter.install();
+        source = Fixtures.resolve(fixture);
+        test = TestFileParser.load(source, null);
+        ReplayProgram.setScript(Fixtures.script(test));
+        logFile = new File(Fixtures.tempDirectory(), fixture.replace(".test", "") + "Test.log");
+        logFile.deleteOnExit();
+    }
+
+    /**
+     * Tests the whole fixture.
+     *
+     * @return Result of the fixture.
+     */
+    @Benchmark
+    public FileResult testFile() {
+        final FileResult result = TestSuite.testFile(ReplayProgram.class, fixture, test, logFile);
+        if (!result.isPassed()) {
+            throw new IllegalStateException("Replay of " + fixture + " failed: " + result.getFailures());
+        }
+        return result;
+    }
+
+    /**
+     * Tests the whole fixture, reading its cases while testing.
+     *
+     * @return Result of the fixture.
+     * @throws IOException    Will be thrown if the fixture couldn't be read.
+     * @throws ParseException Will be thrown if the fixture is bad formatted.
+     */
+    @Benchmark
+    public FileResult testFileStreaming() throws IOException, ParseException {
+        final FileResult result = TestSuite.testFile(ReplayProgram.class, fixture, new CaseStream(source), logFile);
+        if (!result.isPassed()) {
+            throw new IllegalStateException("Streamed replay of " + fixture + " failed: " + result.getFailures());
+        }
+        return result;
+    }
+}
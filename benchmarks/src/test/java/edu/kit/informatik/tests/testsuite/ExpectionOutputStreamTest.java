@@ -0,0 +1,162 @@
+package edu.kit.informatik.tests.testsuite;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link ExpectionOutputStream} writing the same output in different
+ * pieces. Whether an output matches must not depend on how the program splits
+ * its writes, as the output only ends when the program reads the next command.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public class ExpectionOutputStreamTest {
+
+    private static final String NL = System.lineSeparator();
+
+    /**
+     * Directory of the logs.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A route printed node by node.
+     *
+     * @throws IOException Will be thrown if logging failed.
+     */
+    @Test
+    public void routeInPieces() throws IOException {
+        assertMatchesInAllPieces("!R[a-zA-Z]+( [a-zA-Z]+)*", "bB Aa Cc" + NL);
+        assertMatches("!R[a-zA-Z]+( [a-zA-Z]+)*", "bB", " Aa", " Cc", NL);
+    }
+
+    /**
+     * A number printed digit by digit.
+     *
+     * @throws IOException Will be thrown if logging failed.
+     */
+    @Test
+    public void numberInPieces() throws IOException {
+        assertMatchesInAllPieces("!N0.2 3.14", "3.14" + NL);
+        assertMatches("!N0.2 3.14", "3", ".14", NL);
+        assertMatches("!N0.01 3.14", "3", ".14", NL);
+    }
+
+    /**
+     * An expectation with an optional last line, ending after either line.
+     *
+     * @throws IOException Will be thrown if logging failed.
+     */
+    @Test
+    public void optionalLineInPieces() throws IOException {
+        assertMatchesInAllPieces("!Ra(\nb)?", "a" + NL);
+        assertMatchesInAllPieces("!Ra(\nb)?", "a" + NL + "b" + NL);
+        assertMatchesInAllPieces("!Ra(\nb)?", "a" + NL + "b");
+    }
+
+    /**
+     * Lines compared exactly and in any order.
+     *
+     * @throws IOException Will be thrown if logging failed.
+     */
+    @Test
+    public void linesInPieces() throws IOException {
+        assertMatchesInAllPieces("x\nyz", "x" + NL + "yz" + NL);
+        assertMatchesInAllPieces("x\nyz", "x" + NL + "yz");
+        assertMatchesInAllPieces("!Ux\nyz", "yz" + NL + "x" + NL);
+        assertMatchesInAllPieces("00err", "Error, no such vertex" + NL);
+    }
+
+    /**
+     * Outputs ending too early fail, no matter where a piece ends.
+     *
+     * @throws IOException Will be thrown if logging failed.
+     */
+    @Test
+    public void incompleteInPieces() throws IOException {
+        assertFailsInAllPieces("!N0.01 3.14", "3." + NL);
+        assertFailsInAllPieces("!R[a-z]+ [a-z]+", "ab" + NL);
+        assertFailsInAllPieces("x\nyz", "x" + NL + "y" + NL);
+    }
+
+    /**
+     * Outputs going on after the expectation fail, no matter where a piece
+     * ends.
+     *
+     * @throws IOException Will be thrown if logging failed.
+     */
+    @Test
+    public void excessInPieces() throws IOException {
+        assertFailsInAllPieces("!R[a-zA-Z]+( [a-zA-Z]+)*", "bB Aa" + NL + "Cc" + NL);
+        assertFailsInAllPieces("!N0.2 3.14", "3.14" + NL + NL);
+        assertFailsInAllPieces("x", "xy" + NL);
+    }
+
+    private void assertMatchesInAllPieces(final String expectation, final String output) throws IOException {
+        for (int size = 1; size <= output.length(); size++) {
+            assertMatches(expectation, split(output, size));
+        }
+    }
+
+    private void assertFailsInAllPieces(final String expectation, final String output) throws IOException {
+        for (int size = 1; size <= output.length(); size++) {
+            final String[] pieces = split(output, size);
+            assertEquals("pieces of " + size, 1, run(expectation, pieces).size());
+        }
+    }
+
+    private void assertMatches(final String expectation, final String... pieces) throws IOException {
+        final List<TestFailure> failures = run(expectation, pieces);
+        assertTrue(expectation + " in " + String.join("|", pieces) + ": " + failures, failures.isEmpty());
+    }
+
+    /**
+     * Serves one command, writes its output in pieces and reads "quit".
+     *
+     * @return Recorded failures.
+     */
+    private List<TestFailure> run(final String expectation, final String... pieces) throws IOException {
+        final CommandChannel channel = new CommandChannel(new TestFile(new String[0],
+                Collections.singletonList("cmd"), Collections.singletonList(expectation), null, 0));
+        final ExpectionOutputStream out = new ExpectionOutputStream(channel, new ByteArrayOutputStream(),
+                folder.newFile());
+        final ExpectionInputStream in = new ExpectionInputStream(channel, out);
+        final byte[] buffer = new byte[16];
+        try {
+            in.read(buffer, 0, buffer.length);
+            for (final String piece : pieces) {
+                out.write(piece.getBytes(Charset.defaultCharset()));
+            }
+            in.read(buffer, 0, buffer.length);
+            if (!channel.isAborted()) {
+                assertEquals(1, channel.getOutputCount());
+            }
+        } catch (TestAbortedError ignored) {
+            // recorded by the channel
+        } finally {
+            out.close();
+        }
+        return channel.getFailures();
+    }
+
+    private static String[] split(final String output, final int size) {
+        final List<String> pieces = new ArrayList<>();
+        for (int i = 0; i < output.length(); i += size) {
+            pieces.add(output.substring(i, Math.min(output.length(), i + size)));
+        }
+        return pieces.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,246 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log file written in the background. Written bytes are copied into a bounded
+ * ring which one shared writer thread drains in batches through the channel
+ * of the file. Writing only blocks while the ring is full; closing drains the
+ * rest of the ring.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class AsyncLog extends OutputStream {
+
+    /**
+     * Flush policy draining the ring after every write.
+     */
+    public static final long FLUSH_ALWAYS = 0;
+    /**
+     * Flush policy draining the ring only if it is half full or closed.
+     */
+    public static final long FLUSH_ON_CLOSE = -1;
+
+    private static final int CAPACITY = 1 << 16;
+    private static final int MASK = CAPACITY - 1;
+    private static final Set<AsyncLog> OPEN = ConcurrentHashMap.newKeySet();
+    private static final Object SIGNAL = new Object();
+    private static volatile long flushInterval = TimeUnit.MILLISECONDS.toNanos(100);
+    private static boolean signalled;
+    private static Thread writer;
+
+    private final byte[] ring = new byte[CAPACITY];
+    private final byte[] single = new byte[1];
+    private final Object drainLock = new Object();
+    private final FileChannel file;
+    private long head;
+    private long tail;
+    private boolean closed;
+    private volatile IOException failure;
+
+    /**
+     * Initialises a log, replacing the content of file.
+     *
+     * @param file File to write into.
+     * @throws IOException Will be thrown if the file couldn't be opened.
+     */
+    public AsyncLog(final File file) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Creating log-directory failed!");
+        }
+        this.file = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        OPEN.add(this);
+        startWriter();
+    }
+
+    /**
+     * Setter of the flush policy.
+     *
+     * @param nanos Longest time in nanoseconds written bytes wait in the ring,
+     *              {@link #FLUSH_ALWAYS} or {@link #FLUSH_ON_CLOSE}.
+     */
+    public static void setFlushInterval(final long nanos) {
+        flushInterval = nanos;
+        signal();
+    }
+
+    /**
+     * Getter of the flush policy.
+     *
+     * @return Longest time in nanoseconds written bytes wait in the ring,
+     * {@link #FLUSH_ALWAYS} or {@link #FLUSH_ON_CLOSE}.
+     */
+    public static long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Parses a flush policy like it is stored in TestSuite.config.
+     *
+     * @param value "always", "close" or a duration like "100ms".
+     * @return Flush policy in nanoseconds.
+     * @throws IllegalArgumentException Will be thrown if value isn't a policy.
+     */
+    public static long parseFlushPolicy(final String value) {
+        switch (value) {
+            case "always":
+                return FLUSH_ALWAYS;
+            case "close":
+                return FLUSH_ON_CLOSE;
+            default:
+                return TestFileParser.toNanos(value);
+        }
+    }
+
+    @Override
+    public synchronized void write(final int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(final byte[] b, final int off, final int len) throws IOException {
+        int written = 0;
+        while (written < len) {
+            check();
+            final int free = CAPACITY - (int) (head - tail);
+            if (free == 0) {
+                signal();
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for log writer");
+                }
+                continue;
+            }
+            final int start = (int) (head & MASK);
+            final int count = Math.min(Math.min(len - written, free), CAPACITY - start);
+            System.arraycopy(b, off + written, ring, start, count);
+            head += count;
+            written += count;
+        }
+        if (flushInterval == FLUSH_ALWAYS || head - tail >= CAPACITY / 2) {
+            signal();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        OPEN.remove(this);
+        try {
+            drain();
+        } finally {
+            file.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void check() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (closed) {
+            throw new IOException("Log closed");
+        }
+    }
+
+    /**
+     * Writes all bytes of the ring into the file. The bytes are written
+     * directly out of the ring, as the writing thread doesn't overwrite them
+     * until the tail is moved.
+     *
+     * @throws IOException Will be thrown if writing failed.
+     */
+    private void drain() throws IOException {
+        synchronized (drainLock) {
+            while (true) {
+                final long from;
+                final long to;
+                synchronized (this) {
+                    from = tail;
+                    to = head;
+                }
+                if (from == to || !file.isOpen()) {
+                    return;
+                }
+                final int start = (int) (from & MASK);
+                final int count = (int) Math.min(to - from, CAPACITY - start);
+                final ByteBuffer batch = ByteBuffer.wrap(ring, start, count);
+                while (batch.hasRemaining()) {
+                    file.write(batch);
+                }
+                synchronized (this) {
+                    tail = from + count;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private static void signal() {
+        synchronized (SIGNAL) {
+            signalled = true;
+            SIGNAL.notifyAll();
+        }
+    }
+
+    private static synchronized void startWriter() {
+        if (writer != null) {
+            return;
+        }
+        writer = new Thread(AsyncLog::drainAll, "TestSuite-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static void drainAll() {
+        while (true) {
+            synchronized (SIGNAL) {
+                final long interval = flushInterval;
+                try {
+                    if (interval <= 0) {
+                        while (!signalled) {
+                            SIGNAL.wait();
+                        }
+                    } else if (!signalled) {
+                        TimeUnit.NANOSECONDS.timedWait(SIGNAL, interval);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                signalled = false;
+            }
+            for (final AsyncLog log : OPEN) {
+                try {
+                    log.drain();
+                } catch (IOException e) {
+                    log.failure = e;
+                    synchronized (log) {
+                        log.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+}
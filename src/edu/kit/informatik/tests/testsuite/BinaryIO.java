@@ -0,0 +1,106 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers for the binary formats of the TestSuite. Strings are stored as
+ * UTF-8 with their length as variable length integer, so they aren't limited
+ * to 64 KiB like with writeUTF.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+final class BinaryIO {
+
+    private BinaryIO() {
+    }
+
+    /**
+     * Writes an integer using 7 bits per byte.
+     *
+     * @param out   Output to write to.
+     * @param value Value to write, has to be positive.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    static void writeVarInt(final DataOutput out, final long value) throws IOException {
+        long rest = value;
+        while ((rest & ~0x7FL) != 0) {
+            out.writeByte((int) (rest & 0x7F) | 0x80);
+            rest >>>= 7;
+        }
+        out.writeByte((int) rest);
+    }
+
+    /**
+     * Reads an integer written with {@link #writeVarInt(DataOutput, long)}.
+     *
+     * @param in Input to read from.
+     * @return Read value.
+     * @throws IOException Will be thrown if reading failed.
+     */
+    static long readVarInt(final DataInput in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Writes a String.
+     *
+     * @param out   Output to write to.
+     * @param value String to write, not null.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    static void writeString(final DataOutput out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a String written with {@link #writeString(DataOutput, String)}.
+     *
+     * @param in Input to read from.
+     * @return Read String.
+     * @throws IOException Will be thrown if reading failed.
+     */
+    static String readString(final DataInput in) throws IOException {
+        final byte[] bytes = new byte[(int) readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a String which may be null.
+     *
+     * @param out   Output to write to.
+     * @param value String to write or null.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    static void writeNullable(final DataOutput out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    /**
+     * Reads a String written with {@link #writeNullable(DataOutput, String)}.
+     *
+     * @param in Input to read from.
+     * @return Read String or null.
+     * @throws IOException Will be thrown if reading failed.
+     */
+    static String readNullable(final DataInput in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+}
@@ -0,0 +1,587 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Regular expression compiled into a Thompson automaton matching encoded bytes.
+ * All states are simulated at once, so matching takes linear time in the
+ * length of the input whatever the pattern looks like. Supported are literals,
+ * '.', classes like [a-z] or [^;], the escapes \d \w \s \D \W \S, groups,
+ * alternatives and the quantifiers *, +, ?, {n}, {n,} and {n,m}. The pattern
+ * always has to match the whole input. A line break in the pattern matches the
+ * line separator.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+final class ByteRegex {
+
+    private static final int MAX_PROGRAM = 1 << 14;
+    private static final int SET = 0;
+    private static final int SPLIT = 1;
+    private static final int JUMP = 2;
+    private static final int MATCH = 3;
+
+    private final String pattern;
+    private final int[] ops;
+    private final int[] targets;
+    private final int[] alternatives;
+    private final long[] sets;
+    private final int[] current;
+    private final int[] next;
+    private final int[] stack;
+    private final int[] marks;
+    private int generation;
+    private int[] clist;
+    private int[] nlist;
+    private int count;
+
+    private ByteRegex(final String pattern, final Program program) {
+        this.pattern = pattern;
+        final int size = program.size;
+        this.ops = program.ops;
+        this.targets = program.targets;
+        this.alternatives = program.alternatives;
+        this.sets = program.sets;
+        this.current = new int[size];
+        this.next = new int[size];
+        this.stack = new int[size];
+        this.marks = new int[size];
+    }
+
+    /**
+     * Compiles a pattern.
+     *
+     * @param pattern    Pattern to compile.
+     * @param ignoreCase true, if ASCII letters should match ignoring their
+     *                   case.
+     * @return Compiled pattern.
+     * @throws IllegalArgumentException Will be thrown if the pattern is
+     *                                  invalid or too large.
+     */
+    static ByteRegex compile(final String pattern, final boolean ignoreCase) {
+        final Node root = new Parser(pattern, ignoreCase).parse();
+        final Program program = new Program();
+        root.emit(program);
+        program.add(MATCH, 0, 0, null);
+        return new ByteRegex(pattern, program);
+    }
+
+    /**
+     * Checks if a region of a buffer matches the whole pattern.
+     *
+     * @param b   Buffer containing the region.
+     * @param off Start of the region.
+     * @param len Length of the region.
+     * @return true, if the region matches, false otherwise.
+     */
+    synchronized boolean matches(final byte[] b, final int off, final int len) {
+        reset();
+        return step(b, off, len) == len && isMatch();
+    }
+
+    /**
+     * Starts matching a new input, which is then passed in pieces to
+     * {@link #step(byte[], int, int)}. Only one input can be matched at a
+     * time.
+     */
+    void reset() {
+        clist = current;
+        nlist = next;
+        generation++;
+        count = close(clist, 0, 0);
+    }
+
+    /**
+     * Continues matching the input with the next bytes.
+     *
+     * @param b   Buffer containing the bytes.
+     * @param off Start of the bytes.
+     * @param len Count of the bytes.
+     * @return Count of bytes consumed before no match was possible anymore,
+     * len if a match is still possible.
+     */
+    int step(final byte[] b, final int off, final int len) {
+        for (int i = 0; i < len; i++) {
+            if (count == 0) {
+                return i;
+            }
+            final int value = b[off + i] & 0xFF;
+            generation++;
+            int nextCount = 0;
+            for (int j = 0; j < count; j++) {
+                final int pc = clist[j];
+                if (ops[pc] == SET && contains(pc, value)) {
+                    nextCount = close(nlist, nextCount, pc + 1);
+                }
+            }
+            final int[] swap = clist;
+            clist = nlist;
+            nlist = swap;
+            count = nextCount;
+            if (count == 0) {
+                return i;
+            }
+        }
+        return len;
+    }
+
+    /**
+     * Checks if the input passed so far matches the whole pattern.
+     *
+     * @return true, if the input ending here matches.
+     */
+    boolean isMatch() {
+        for (int j = 0; j < count; j++) {
+            if (ops[clist[j]] == MATCH) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean contains(final int pc, final int value) {
+        return (sets[pc * 4 + (value >>> 6)] >>> (value & 63) & 1) != 0;
+    }
+
+    /**
+     * Adds a state and all states reachable from it without consuming a byte.
+     */
+    private int close(final int[] list, final int count, final int start) {
+        int size = count;
+        int top = 0;
+        if (marks[start] != generation) {
+            marks[start] = generation;
+            stack[top++] = start;
+        }
+        while (top > 0) {
+            final int pc = stack[--top];
+            if (ops[pc] == JUMP || ops[pc] == SPLIT) {
+                if (ops[pc] == SPLIT && marks[alternatives[pc]] != generation) {
+                    marks[alternatives[pc]] = generation;
+                    stack[top++] = alternatives[pc];
+                }
+                if (marks[targets[pc]] != generation) {
+                    marks[targets[pc]] = generation;
+                    stack[top++] = targets[pc];
+                }
+            } else {
+                list[size++] = pc;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    /**
+     * Instructions of the automaton under construction.
+     */
+    private static final class Program {
+        private int[] ops = new int[16];
+        private int[] targets = new int[16];
+        private int[] alternatives = new int[16];
+        private long[] sets = new long[16 * 4];
+        private int size;
+
+        int add(final int op, final int target, final int alternative, final long[] set) {
+            if (size == MAX_PROGRAM) {
+                throw new IllegalArgumentException("Regex too large");
+            }
+            if (size == ops.length) {
+                ops = Arrays.copyOf(ops, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+                alternatives = Arrays.copyOf(alternatives, size * 2);
+                sets = Arrays.copyOf(sets, size * 2 * 4);
+            }
+            ops[size] = op;
+            targets[size] = target;
+            alternatives[size] = alternative;
+            if (set != null) {
+                System.arraycopy(set, 0, sets, size * 4, 4);
+            }
+            return size++;
+        }
+    }
+
+    /**
+     * Node of the syntax tree of a pattern.
+     */
+    private abstract static class Node {
+        abstract void emit(Program program);
+    }
+
+    /**
+     * One byte out of a set.
+     */
+    private static final class SetNode extends Node {
+        private final long[] set;
+
+        SetNode(final long[] set) {
+            this.set = set;
+        }
+
+        @Override
+        void emit(final Program program) {
+            program.add(SET, 0, 0, set);
+        }
+    }
+
+    /**
+     * Nodes matched one after another.
+     */
+    private static final class Sequence extends Node {
+        private final List<Node> nodes;
+
+        Sequence(final List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        void emit(final Program program) {
+            for (final Node node : nodes) {
+                node.emit(program);
+            }
+        }
+    }
+
+    /**
+     * Two alternative nodes.
+     */
+    private static final class Alternative extends Node {
+        private final Node first;
+        private final Node second;
+
+        Alternative(final Node first, final Node second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        void emit(final Program program) {
+            final int split = program.add(SPLIT, 0, 0, null);
+            program.targets[split] = program.size;
+            first.emit(program);
+            final int jump = program.add(JUMP, 0, 0, null);
+            program.alternatives[split] = program.size;
+            second.emit(program);
+            program.targets[jump] = program.size;
+        }
+    }
+
+    /**
+     * Node repeated between min and max times, max -1 for unbounded.
+     */
+    private static final class Repeat extends Node {
+        private final Node node;
+        private final int min;
+        private final int max;
+
+        Repeat(final Node node, final int min, final int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        void emit(final Program program) {
+            for (int i = 0; i < min; i++) {
+                node.emit(program);
+            }
+            if (max < 0) {
+                final int split = program.add(SPLIT, 0, 0, null);
+                program.targets[split] = program.size;
+                node.emit(program);
+                program.add(JUMP, split, 0, null);
+                program.alternatives[split] = program.size;
+            } else {
+                final List<Integer> splits = new ArrayList<>();
+                for (int i = min; i < max; i++) {
+                    final int split = program.add(SPLIT, 0, 0, null);
+                    program.targets[split] = program.size;
+                    splits.add(split);
+                    node.emit(program);
+                }
+                for (final int split : splits) {
+                    program.alternatives[split] = program.size;
+                }
+            }
+        }
+    }
+
+    /**
+     * Recursive descent parser of patterns.
+     */
+    private static final class Parser {
+        private final String pattern;
+        private final boolean ignoreCase;
+        private int pos;
+
+        Parser(final String pattern, final boolean ignoreCase) {
+            this.pattern = pattern;
+            this.ignoreCase = ignoreCase;
+        }
+
+        Node parse() {
+            if (pattern.startsWith("^")) {
+                pos++;
+            }
+            final Node root = alternatives();
+            if (pos < pattern.length()) {
+                throw error(pattern.charAt(pos) == ')' ? "Unmatched ')'" : "Unexpected '" + pattern.charAt(pos) + "'");
+            }
+            return root;
+        }
+
+        private Node alternatives() {
+            Node node = sequence();
+            while (pos < pattern.length() && pattern.charAt(pos) == '|') {
+                pos++;
+                node = new Alternative(node, sequence());
+            }
+            return node;
+        }
+
+        private Node sequence() {
+            final List<Node> nodes = new ArrayList<>();
+            while (pos < pattern.length() && pattern.charAt(pos) != '|' && pattern.charAt(pos) != ')') {
+                if (pattern.charAt(pos) == '$' && pos == pattern.length() - 1) {
+                    pos++;
+                    break;
+                }
+                nodes.add(quantified(atom()));
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new Sequence(nodes);
+        }
+
+        private Node quantified(final Node atom) {
+            Node node = atom;
+            while (pos < pattern.length()) {
+                final char c = pattern.charAt(pos);
+                if (c == '*') {
+                    node = new Repeat(node, 0, -1);
+                } else if (c == '+') {
+                    node = new Repeat(node, 1, -1);
+                } else if (c == '?') {
+                    node = new Repeat(node, 0, 1);
+                } else if (c == '{') {
+                    pos++;
+                    final int min = number();
+                    int max = min;
+                    if (pos < pattern.length() && pattern.charAt(pos) == ',') {
+                        pos++;
+                        max = pos < pattern.length() && pattern.charAt(pos) == '}' ? -1 : number();
+                    }
+                    if (pos >= pattern.length() || pattern.charAt(pos) != '}') {
+                        throw error("Expected '}'");
+                    }
+                    if (max >= 0 && max < min) {
+                        throw error("Illegal repetition {" + min + "," + max + "}");
+                    }
+                    node = new Repeat(node, min, max);
+                } else {
+                    return node;
+                }
+                pos++;
+                if (pos < pattern.length() && pattern.charAt(pos) == '?') {
+                    pos++;
+                }
+            }
+            return node;
+        }
+
+        private int number() {
+            final int start = pos;
+            while (pos < pattern.length() && pattern.charAt(pos) >= '0' && pattern.charAt(pos) <= '9'
+                    && pos - start < 4) {
+                pos++;
+            }
+            if (pos == start) {
+                throw error("Expected number in repetition");
+            }
+            return Integer.parseInt(pattern.substring(start, pos));
+        }
+
+        private Node atom() {
+            final char c = pattern.charAt(pos++);
+            switch (c) {
+                case '(':
+                    if (pattern.startsWith("?:", pos)) {
+                        pos += 2;
+                    }
+                    final Node group = alternatives();
+                    if (pos >= pattern.length() || pattern.charAt(pos) != ')') {
+                        throw error("Unclosed group");
+                    }
+                    pos++;
+                    return group;
+                case '[':
+                    return new SetNode(characterClass());
+                case '.':
+                    final long[] any = new long[4];
+                    fill(any, 0, 255);
+                    clear(any, '\n');
+                    clear(any, '\r');
+                    return new SetNode(any);
+                case '\\':
+                    return escape();
+                case '\n':
+                    return literal(System.lineSeparator());
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw error("Nothing to repeat");
+                default:
+                    return literal(String.valueOf(c));
+            }
+        }
+
+        private Node escape() {
+            if (pos >= pattern.length()) {
+                throw error("Trailing '\\'");
+            }
+            final char c = pattern.charAt(pos++);
+            final long[] set = new long[4];
+            if (shorthand(c, set)) {
+                return new SetNode(set);
+            }
+            return literal(String.valueOf(escaped(c)));
+        }
+
+        private long[] characterClass() {
+            final long[] set = new long[4];
+            final boolean negated = pos < pattern.length() && pattern.charAt(pos) == '^';
+            if (negated) {
+                pos++;
+            }
+            boolean first = true;
+            while (pos < pattern.length() && (first || pattern.charAt(pos) != ']')) {
+                first = false;
+                char from = pattern.charAt(pos++);
+                if (from == '\\') {
+                    if (pos >= pattern.length()) {
+                        throw error("Trailing '\\'");
+                    }
+                    if (shorthand(pattern.charAt(pos), set)) {
+                        pos++;
+                        continue;
+                    }
+                    from = escaped(pattern.charAt(pos++));
+                }
+                char to = from;
+                if (pos + 1 < pattern.length() && pattern.charAt(pos) == '-' && pattern.charAt(pos + 1) != ']') {
+                    pos++;
+                    to = pattern.charAt(pos++);
+                    if (to == '\\') {
+                        if (pos >= pattern.length()) {
+                            throw error("Trailing '\\'");
+                        }
+                        to = escaped(pattern.charAt(pos++));
+                    }
+                    if (to < from) {
+                        throw error("Illegal range " + from + "-" + to);
+                    }
+                }
+                if (to > 127) {
+                    throw error("Only ASCII characters are supported in classes");
+                }
+                for (char value = from; value <= to; value++) {
+                    add(set, value);
+                }
+            }
+            if (pos >= pattern.length()) {
+                throw error("Unclosed character class");
+            }
+            pos++;
+            if (negated) {
+                for (int i = 0; i < set.length; i++) {
+                    set[i] = ~set[i];
+                }
+            }
+            return set;
+        }
+
+        private boolean shorthand(final char c, final long[] set) {
+            final long[] own = new long[4];
+            switch (Character.toLowerCase(c)) {
+                case 'd':
+                    fill(own, '0', '9');
+                    break;
+                case 'w':
+                    fill(own, 'a', 'z');
+                    fill(own, 'A', 'Z');
+                    fill(own, '0', '9');
+                    fill(own, '_', '_');
+                    break;
+                case 's':
+                    fill(own, '\t', '\r');
+                    fill(own, ' ', ' ');
+                    break;
+                default:
+                    return false;
+            }
+            final boolean negated = Character.isUpperCase(c);
+            for (int i = 0; i < set.length; i++) {
+                set[i] |= negated ? ~own[i] : own[i];
+            }
+            return true;
+        }
+
+        private char escaped(final char c) {
+            switch (c) {
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 't':
+                    return '\t';
+                default:
+                    if (Character.isLetterOrDigit(c)) {
+                        throw error("Unknown escape '\\" + c + "'");
+                    }
+                    return c;
+            }
+        }
+
+        private Node literal(final String value) {
+            final byte[] bytes = value.getBytes(Charset.defaultCharset());
+            final List<Node> nodes = new ArrayList<>(bytes.length);
+            for (final byte b : bytes) {
+                final long[] set = new long[4];
+                add(set, (char) (b & 0xFF));
+                nodes.add(new SetNode(set));
+            }
+            return nodes.size() == 1 ? nodes.get(0) : new Sequence(nodes);
+        }
+
+        private void add(final long[] set, final char value) {
+            fill(set, value, value);
+            if (ignoreCase && value >= 'a' && value <= 'z') {
+                fill(set, value - ('a' - 'A'), value - ('a' - 'A'));
+            } else if (ignoreCase && value >= 'A' && value <= 'Z') {
+                fill(set, value + ('a' - 'A'), value + ('a' - 'A'));
+            }
+        }
+
+        private static void fill(final long[] set, final int from, final int to) {
+            for (int value = from; value <= to; value++) {
+                set[value >>> 6] |= 1L << (value & 63);
+            }
+        }
+
+        private static void clear(final long[] set, final int value) {
+            set[value >>> 6] &= ~(1L << (value & 63));
+        }
+
+        private IllegalArgumentException error(final String message) {
+            return new IllegalArgumentException("Illegal regex '" + pattern + "': " + message);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.ParseException;
+
+/**
+ * Cases of a test file, requested in ascending order by the
+ * {@link CommandChannel} testing them.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public interface CaseSource extends Closeable {
+
+    /**
+     * Getter of the command line arguments.
+     *
+     * @return Command line arguments or null if the file doesn't define any.
+     */
+    String[] getArguments();
+
+    /**
+     * Getter of the memory budgets.
+     *
+     * @return Memory budgets of the whole file.
+     */
+    MemoryBudget getMemoryBudget();
+
+    /**
+     * Getter of a case. Sources may drop cases once a later one was requested,
+     * only the case requested last and the one in front of it have to stay
+     * available.
+     *
+     * @param index Index of the case.
+     * @return Case or null if the file has less cases.
+     * @throws IOException    Will be thrown if reading the case failed.
+     * @throws ParseException Will be thrown if the case is bad formatted.
+     */
+    TestCase get(int index) throws IOException, ParseException;
+
+    /**
+     * Getter of the count of cases read so far.
+     *
+     * @return Count of read cases, count of all cases if
+     * {@link #isComplete()}.
+     */
+    int size();
+
+    /**
+     * Getter of the completeness.
+     *
+     * @return true, if all cases of the file were read.
+     */
+    boolean isComplete();
+}
@@ -0,0 +1,170 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Cases of a .test-File parsed while the file is tested. A reader thread parses
+ * ahead into a bounded window, so memory stays constant no matter how many
+ * cases the file has. Only the cases requested last stay available.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class CaseStream implements CaseSource {
+
+    private static final int WINDOW = 1024;
+    private static final int RETAINED = 4;
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> window = new ArrayBlockingQueue<>(WINDOW);
+    private final TestCase[] retained = new TestCase[RETAINED];
+    private final Reader in;
+    private final TestFileParser parser;
+    private final Thread reader;
+    private final String[] arguments;
+    private final MemoryBudget memoryBudget;
+    private int fetched;
+    private boolean complete;
+    private Exception failure;
+    private volatile boolean closed;
+
+    /**
+     * Opens a .test-File and reads its cases in the background.
+     *
+     * @param source .test-File to read.
+     * @throws IOException    Will be thrown if opening the file failed.
+     * @throws ParseException Will be thrown if the content in front of the
+     *                        first case is bad formatted.
+     */
+    public CaseStream(final File source) throws IOException, ParseException {
+        this(new InputStreamReader(new FileInputStream(source), Charset.defaultCharset()), source.getName());
+    }
+
+    /**
+     * Reads the cases a Reader provides in the background. The arguments and
+     * the first case are read before returning.
+     *
+     * @param in   Reader providing the content of a .test-File, closed with
+     *             this stream.
+     * @param name Name of the file.
+     * @throws IOException    Will be thrown if reading failed.
+     * @throws ParseException Will be thrown if the content in front of the
+     *                        first case is bad formatted.
+     */
+    public CaseStream(final Reader in, final String name) throws IOException, ParseException {
+        this.in = in;
+        this.parser = new TestFileParser(in);
+        try {
+            if (parser.next()) {
+                window.add(current());
+            } else {
+                window.add(END);
+            }
+        } catch (IOException | ParseException e) {
+            in.close();
+            throw e;
+        }
+        arguments = parser.getArguments();
+        memoryBudget = parser.getMemoryBudget();
+        reader = new Thread(this::readAhead, "TestSuite-reader-" + name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private TestCase current() {
+        final long budget = parser.getBudget() > 0 ? parser.getBudget() : parser.getFileBudget();
+        return new TestCase(parser.getInput(), parser.getExpectation(), budget);
+    }
+
+    private void readAhead() {
+        try {
+            if (window.peek() == END) {
+                return;
+            }
+            Object next;
+            do {
+                next = parser.next() ? current() : END;
+                window.put(next);
+            } while (next != END && !closed);
+        } catch (IOException | ParseException e) {
+            if (!closed) {
+                try {
+                    window.put(e);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    @Override
+    public String[] getArguments() {
+        return arguments;
+    }
+
+    @Override
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    @Override
+    public synchronized TestCase get(final int index) throws IOException, ParseException {
+        if (index < fetched - RETAINED) {
+            throw new IllegalStateException("Case " + (index + 1) + " already left the window");
+        }
+        while (index >= fetched) {
+            if (complete) {
+                return null;
+            }
+            if (failure == null) {
+                final Object next;
+                try {
+                    next = window.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for case " + (index + 1));
+                }
+                if (next == END) {
+                    complete = true;
+                    return null;
+                } else if (next instanceof TestCase) {
+                    retained[fetched % RETAINED] = (TestCase) next;
+                    fetched++;
+                    continue;
+                }
+                failure = (Exception) next;
+            }
+            if (failure instanceof ParseException) {
+                throw (ParseException) failure;
+            }
+            throw (IOException) failure;
+        }
+        return retained[index % RETAINED];
+    }
+
+    @Override
+    public synchronized int size() {
+        return fetched;
+    }
+
+    @Override
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        reader.interrupt();
+        in.close();
+    }
+}
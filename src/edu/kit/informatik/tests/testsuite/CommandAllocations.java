@@ -0,0 +1,89 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bytes allocated by the commands of one file per command word, e.g. "remove"
+ * for "remove A;B". Like {@link CommandLatencies} only the first words seen
+ * are counted apart, the allocations of all further words are counted as
+ * {@link CommandLatencies#OTHER}.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class CommandAllocations {
+
+    private final List<String> words = new ArrayList<>();
+    private final List<byte[]> encoded = new ArrayList<>();
+    private final long[] counts = new long[CommandLatencies.MAX_WORDS + 1];
+    private final long[] totals = new long[CommandLatencies.MAX_WORDS + 1];
+    private final long[] maxima = new long[CommandLatencies.MAX_WORDS + 1];
+    private final int[] maxCases = new int[CommandLatencies.MAX_WORDS + 1];
+
+    /**
+     * Records the allocation of a command.
+     *
+     * @param command    Encoded command followed by a line separator.
+     * @param caseNumber Number of the case starting with 1.
+     * @param bytes      Bytes allocated between serving the command and
+     *                   matching its output.
+     */
+    void record(final byte[] command, final int caseNumber, final long bytes) {
+        final int index = indexOf(command);
+        counts[index]++;
+        totals[index] += bytes;
+        if (bytes > maxima[index] || maxCases[index] == 0) {
+            maxima[index] = bytes;
+            maxCases[index] = caseNumber;
+        }
+    }
+
+    /**
+     * Getter of the recorded words.
+     *
+     * @return Command words in the order they were first seen.
+     */
+    public List<String> getWords() {
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * Describes the allocations of one word.
+     *
+     * @param word Command word.
+     * @return Description like "\"remove\" n=12 avg=1.2KB max=8.5KB by case 3".
+     */
+    public String describe(final String word) {
+        final int index = words.indexOf(word);
+        if (index < 0 || counts[index] == 0) {
+            return "\"" + word + "\" n=0";
+        }
+        return "\"" + word + "\" n=" + counts[index] + " avg=" + ResourceUsage.format(totals[index] / counts[index])
+                + " max=" + ResourceUsage.format(maxima[index]) + " by case " + maxCases[index];
+    }
+
+    private int indexOf(final byte[] command) {
+        final int length = CommandLatencies.wordLength(command);
+        for (int i = 0; i < encoded.size(); i++) {
+            if (CommandLatencies.matches(encoded.get(i), command, length)) {
+                return i;
+            }
+        }
+        if (words.size() < CommandLatencies.MAX_WORDS) {
+            final byte[] word = Arrays.copyOf(command, length);
+            words.add(new String(word, Charset.defaultCharset()));
+            encoded.add(word);
+            return words.size() - 1;
+        }
+        final int other = words.indexOf(CommandLatencies.OTHER);
+        if (other >= 0) {
+            return other;
+        }
+        words.add(CommandLatencies.OTHER);
+        encoded.add(null);
+        return words.size() - 1;
+    }
+}
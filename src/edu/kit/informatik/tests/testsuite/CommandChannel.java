@@ -0,0 +1,353 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Channel between {@link ExpectionInputStream} and
+ * {@link ExpectionOutputStream}. Serves the commands of the cases a
+ * {@link CaseSource} provides and decides whose turn it is: after a command
+ * was read the program has to write its output before the next command is
+ * served. Failures of the file are recorded here; after the first one the
+ * channel is aborted and only serves the end of input.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class CommandChannel {
+
+    private static final byte[] QUIT = ("quit" + System.lineSeparator()).getBytes(Charset.defaultCharset());
+
+    private final CaseSource cases;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final CommandLatencies commandLatencies = new CommandLatencies();
+    private final ResourceMonitor resources = new ResourceMonitor();
+    private final List<TestFailure> failures = new ArrayList<>();
+    private boolean aborted;
+    private long servedAt;
+    private volatile long progressAt = System.nanoTime();
+    private byte[] command;
+    private boolean quitServed;
+    private int line;
+    private int position;
+    private int outputs;
+    private boolean inputTurn = true;
+
+    /**
+     * Initialises a new channel serving the cases of a source and checking
+     * their time budgets. After all cases "quit" is served.
+     *
+     * @param cases Cases to serve.
+     */
+    public CommandChannel(final CaseSource cases) {
+        this.cases = cases;
+    }
+
+    /**
+     * Initialises a new channel serving the inputs of a test file and checking
+     * its time budgets.
+     *
+     * @param test Test file to serve.
+     */
+    public CommandChannel(final TestFile test) {
+        this(test.cases());
+    }
+
+    /**
+     * Copies the current command into the buffer. Only the rest of a command
+     * is served, if len is too small to hold it completely.
+     *
+     * @param b   Buffer to copy into.
+     * @param off Start offset in b.
+     * @param len Maximum count of bytes to copy.
+     * @return Count of copied bytes or -1 if the channel was aborted.
+     * @throws TestAbortedError Will be thrown if reading wasn't expected,
+     *                          because output is pending or all cases were
+     *                          served.
+     */
+    public synchronized int read(final byte[] b, final int off, final int len) {
+        if (aborted) {
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!inputTurn) {
+            if (!quitServed) {
+                System.err.println(TestSuite.ERR_PREF + "Expecting output of case " + line
+                        + " but got call to read!");
+                throw abort(null, null, "Reading while output is pending");
+            }
+            System.err.println(TestSuite.ERR_PREF + "Reading while not expected; case: " + line);
+            throw abort(null, null, "Reading while not expected");
+        }
+        if (quitServed) {
+            System.err.println(TestSuite.ERR_PREF + "End of expectations reached!");
+            throw abort(null, null, "End of expectations reached");
+        }
+        if (command == null) {
+            final TestCase next = caseAt(line);
+            if (aborted) {
+                return -1;
+            }
+            command = next != null ? next.getCommand() : QUIT;
+        }
+        final int count = Math.min(len, command.length - position);
+        System.arraycopy(command, position, b, off, count);
+        position += count;
+        if (position == command.length) {
+            quitServed = command == QUIT;
+            command = null;
+            position = 0;
+            line++;
+            inputTurn = false;
+            servedAt = System.nanoTime();
+            progressAt = servedAt;
+            resources.commandServed();
+        }
+        return count;
+    }
+
+    /**
+     * Getter of the count of bytes which can be read without a turn change.
+     *
+     * @return Count of bytes left of the current command.
+     */
+    public synchronized int available() {
+        if (!inputTurn || quitServed || aborted) {
+            return 0;
+        }
+        if (command == null) {
+            final TestCase next = caseAt(line);
+            if (aborted) {
+                return 0;
+            }
+            command = next != null ? next.getCommand() : QUIT;
+        }
+        return command.length - position;
+    }
+
+    /**
+     * Getter of the expectation of the next output. Reading the case may fail
+     * and abort the channel.
+     *
+     * @return Expected output or null if no more output is expected or the
+     * channel was aborted.
+     */
+    public synchronized Expectation expectation() {
+        final TestCase current = aborted ? null : caseAt(outputs);
+        return current != null ? current.getExpectation() : null;
+    }
+
+    /**
+     * Counts a matching output, records the time between serving its command
+     * and its last write and hands the turn back to the input.
+     *
+     * @param writtenAt Time the output was last written to, see
+     *                  {@link System#nanoTime()}.
+     * @throws TestAbortedError Will be thrown if the case took longer than its
+     *                          budget or the program allocated more than the
+     *                          budget of the file.
+     */
+    public synchronized void outputMatched(final long writtenAt) {
+        final long latency = writtenAt - servedAt;
+        latencies.record(latency);
+        final TestCase current = caseAt(outputs);
+        if (current != null) {
+            commandLatencies.record(current.getCommand(), latency);
+        }
+        final long allocated = resources.commandAnswered(current != null ? current.getCommand() : null,
+                outputs + 1);
+        final long allocationBudget = cases.getMemoryBudget().getAllocation();
+        if (allocationBudget > 0 && allocated > allocationBudget) {
+            final String message = "allocated " + ResourceUsage.format(allocated) + ", budget: "
+                    + ResourceUsage.format(allocationBudget);
+            System.err.println(TestSuite.ERR_PREF + "Case " + (outputs + 1) + " " + message);
+            throw abort(null, null, message);
+        }
+        final long budget = current != null ? current.getBudget() : 0;
+        if (budget > 0 && latency > budget) {
+            final String message = "took " + LatencyHistogram.format(latency) + ", budget: "
+                    + LatencyHistogram.format(budget);
+            System.err.println(TestSuite.ERR_PREF + "Case " + (outputs + 1) + " " + message);
+            throw abort(null, null, message);
+        }
+        outputs++;
+        inputTurn = true;
+        progressAt = System.nanoTime();
+    }
+
+    /**
+     * Records a failure of the current case and aborts the channel.
+     *
+     * @param expected Expected output or null.
+     * @param actual   Actual output or null.
+     * @param message  Description of the failure.
+     * @return Error to throw into the tested program.
+     */
+    public synchronized TestAbortedError abort(final String expected, final String actual, final String message) {
+        final TestFailure failure = new TestFailure(outputs + 1, inputOf(outputs), expected, actual, message);
+        fail(failure);
+        return new TestAbortedError(failure);
+    }
+
+    /**
+     * Records a failure and aborts the channel.
+     *
+     * @param failure Failure to record.
+     */
+    public synchronized void fail(final TestFailure failure) {
+        failures.add(failure);
+        aborted = true;
+        inputTurn = false;
+    }
+
+    /**
+     * Getter of the recorded failures.
+     *
+     * @return Failures recorded so far.
+     */
+    public synchronized List<TestFailure> getFailures() {
+        return new ArrayList<>(failures);
+    }
+
+    /**
+     * Getter of the aborted state.
+     *
+     * @return true, if a failure was recorded.
+     */
+    public synchronized boolean isAborted() {
+        return aborted;
+    }
+
+    private String inputOf(final int index) {
+        try {
+            TestCase current = cases.get(index);
+            if (current == null && index > 0) {
+                current = cases.get(index - 1);
+            }
+            return current != null ? current.getInput() : null;
+        } catch (IOException | ParseException e) {
+            return null;
+        }
+    }
+
+    private TestCase caseAt(final int index) {
+        try {
+            return cases.get(index);
+        } catch (ParseException e) {
+            System.err.println(TestSuite.ERR_PREF + "Bad formatted case " + (index + 1) + ": " + e.getMessage());
+            fail(new TestFailure(index + 1, null, null, null, "Bad formatted case: " + e.getMessage()));
+        } catch (IOException e) {
+            System.err.println(TestSuite.ERR_PREF + "Reading case " + (index + 1) + " failed: " + e.getMessage());
+            fail(new TestFailure(index + 1, null, null, null, "Reading case failed: " + e.getMessage()));
+        }
+        return null;
+    }
+
+    /**
+     * Getter of the last progress. Reading a command completely and matching
+     * an output are progresses.
+     *
+     * @return Time of the last progress, see {@link System#nanoTime()}.
+     */
+    public long getProgressAt() {
+        return progressAt;
+    }
+
+    /**
+     * Getter of the resource monitor.
+     *
+     * @return Monitor measuring the resources used by the program.
+     */
+    public ResourceMonitor getResources() {
+        return resources;
+    }
+
+    /**
+     * Getter of the memory budgets.
+     *
+     * @return Memory budgets of the file.
+     */
+    public MemoryBudget getMemoryBudget() {
+        return cases.getMemoryBudget();
+    }
+
+    /**
+     * Getter of the latencies.
+     *
+     * @return Histogram of the times between serving a command and matching
+     * its output.
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Getter of the latencies per command word.
+     *
+     * @return Times between serving a command and matching its output by the
+     * first word of the command.
+     */
+    public CommandLatencies getCommandLatencies() {
+        return commandLatencies;
+    }
+
+    /**
+     * Setter of the turn.
+     *
+     * @param val true, if the program is expected to read next.
+     */
+    public synchronized void setInputTurn(final boolean val) {
+        inputTurn = val;
+    }
+
+    /**
+     * Getter of the turn.
+     *
+     * @return true, if the program is expected to read next.
+     */
+    public synchronized boolean isInputTurn() {
+        return inputTurn;
+    }
+
+    /**
+     * Getter of matched outputs.
+     *
+     * @return Count of outputs matched so far.
+     */
+    public synchronized int getOutputCount() {
+        return outputs;
+    }
+
+    /**
+     * Getter of the case count.
+     *
+     * @return Count of cases read so far, count of all cases if
+     * {@link #isComplete()}.
+     */
+    public int getCaseCount() {
+        return cases.size();
+    }
+
+    /**
+     * Getter of the completeness of the cases.
+     *
+     * @return true, if all cases of the file were read.
+     */
+    public boolean isComplete() {
+        return cases.isComplete();
+    }
+
+    /**
+     * Getter of served commands.
+     *
+     * @return Count of completely served commands.
+     */
+    public synchronized int getServedCount() {
+        return line;
+    }
+}
@@ -0,0 +1,235 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Grammar of the commands of a program, inferred from the inputs of existing
+ * test files. A command is a word optionally followed by a blank and
+ * arguments separated by ';'. For every word the argument counts and, per
+ * position, the kinds of arguments seen are counted: names of the fixture,
+ * numbers and other literals. Random commands are drawn with the same
+ * frequencies, so the many invalid inputs of hand-written files are generated
+ * as well.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+final class CommandGrammar {
+
+    private static final String QUIT = "quit";
+    private static final long[] EDGE_NUMBERS = {0, 1, Integer.MAX_VALUE, 2147483648L, 99999999999L};
+
+    private final List<Command> commands = new ArrayList<>();
+    private final int total;
+
+    private CommandGrammar(final Collection<Command> commands) {
+        int sum = 0;
+        for (final Command command : commands) {
+            this.commands.add(command);
+            sum += command.count;
+        }
+        this.total = sum;
+    }
+
+    /**
+     * Infers the grammar of a program.
+     *
+     * @param inputs Inputs of existing cases.
+     * @param names  Names defined by the fixtures of the existing files.
+     * @return Inferred grammar.
+     * @throws IllegalArgumentException Will be thrown if no input besides
+     *                                  "quit" was given.
+     */
+    static CommandGrammar infer(final Collection<String> inputs, final Collection<String> names) {
+        final Set<String> exact = new HashSet<>(names);
+        final Set<String> folded = new HashSet<>();
+        for (final String name : names) {
+            folded.add(name.toLowerCase(Locale.ROOT));
+        }
+        final Map<String, Command> commands = new TreeMap<>();
+        for (final String input : inputs) {
+            final int blank = input.indexOf(' ');
+            final String word = blank < 0 ? input : input.substring(0, blank);
+            if (word.isEmpty() || word.equals(QUIT)) {
+                continue;
+            }
+            final Command command = commands.computeIfAbsent(word, Command::new);
+            final String[] arguments = blank < 0 ? new String[0] : input.substring(blank + 1).split(";", -1);
+            command.count++;
+            command.arities.merge(arguments.length, 1, Integer::sum);
+            for (int i = 0; i < arguments.length; i++) {
+                command.argument(i).add(arguments[i], exact, folded);
+            }
+        }
+        if (commands.isEmpty()) {
+            throw new IllegalArgumentException("No commands to infer a grammar from");
+        }
+        return new CommandGrammar(commands.values());
+    }
+
+    /**
+     * Draws a random command.
+     *
+     * @param random Source of randomness.
+     * @param names  Names of the current fixture, may be empty.
+     * @param shape  Shape of fixtures to draw new names from or null.
+     * @return Command without line separator.
+     */
+    String generate(final Random random, final List<String> names, final FixtureShape shape) {
+        int pick = random.nextInt(total);
+        Command command = commands.get(0);
+        for (final Command candidate : commands) {
+            command = candidate;
+            pick -= candidate.count;
+            if (pick < 0) {
+                break;
+            }
+        }
+        final int arity = command.arity(random);
+        final StringBuilder builder = new StringBuilder(command.word);
+        if (arity == 0) {
+            return builder.toString();
+        }
+        builder.append(' ');
+        for (int i = 0; i < arity; i++) {
+            if (i > 0) {
+                builder.append(';');
+            }
+            command.arguments.get(i).generate(random, names, shape, builder);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        for (final Command command : commands) {
+            builder.append(command.word).append(' ').append(command.arities.keySet()).append(' ');
+        }
+        return builder.toString().trim();
+    }
+
+    /**
+     * Statistics of one command word.
+     */
+    private static final class Command {
+        private final String word;
+        private final Map<Integer, Integer> arities = new TreeMap<>();
+        private final List<Argument> arguments = new ArrayList<>();
+        private int count;
+
+        Command(final String word) {
+            this.word = word;
+        }
+
+        Argument argument(final int position) {
+            while (arguments.size() <= position) {
+                arguments.add(new Argument());
+            }
+            return arguments.get(position);
+        }
+
+        int arity(final Random random) {
+            int pick = random.nextInt(count);
+            for (final Map.Entry<Integer, Integer> entry : arities.entrySet()) {
+                pick -= entry.getValue();
+                if (pick < 0) {
+                    return entry.getKey();
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Statistics of one argument position.
+     */
+    private static final class Argument {
+        private final Map<String, Integer> literals = new HashMap<>();
+        private final List<String> literalList = new ArrayList<>();
+        private int nodes;
+        private int foldedNodes;
+        private int numbers;
+        private long maxNumber;
+        private int literalCount;
+
+        void add(final String value, final Set<String> exact, final Set<String> folded) {
+            if (exact.contains(value)) {
+                nodes++;
+            } else if (folded.contains(value.toLowerCase(Locale.ROOT))) {
+                foldedNodes++;
+            } else if (isNumber(value)) {
+                numbers++;
+                maxNumber = Math.max(maxNumber, Long.parseLong(value));
+            } else {
+                if (literals.merge(value, 1, Integer::sum) == 1) {
+                    literalList.add(value);
+                }
+                literalCount++;
+            }
+        }
+
+        void generate(final Random random, final List<String> names, final FixtureShape shape,
+                      final StringBuilder builder) {
+            final int count = nodes + foldedNodes + numbers + literalCount;
+            int pick = count > 0 ? random.nextInt(count) : 0;
+            if (count == 0 || (pick -= nodes + foldedNodes) < 0) {
+                final int fresh = random.nextInt(20);
+                if (names.isEmpty() || fresh == 0) {
+                    builder.append(shape != null ? shape.name(random) : "a" + random.nextInt(100));
+                } else {
+                    final String name = names.get(random.nextInt(names.size()));
+                    builder.append(fresh <= foldedNodes * 19 / Math.max(1, nodes + foldedNodes)
+                            ? flipCase(name, random) : name);
+                }
+            } else if ((pick -= numbers) < 0) {
+                if (random.nextInt(20) == 0) {
+                    builder.append(EDGE_NUMBERS[random.nextInt(EDGE_NUMBERS.length)]);
+                } else {
+                    builder.append((long) (random.nextDouble() * (2 * maxNumber + 2)));
+                }
+            } else {
+                pick = random.nextInt(literalCount);
+                for (final String literal : literalList) {
+                    pick -= literals.get(literal);
+                    if (pick < 0) {
+                        builder.append(literal);
+                        return;
+                    }
+                }
+            }
+        }
+
+        private static String flipCase(final String name, final Random random) {
+            final char[] chars = name.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                if (random.nextBoolean()) {
+                    chars[i] = Character.isUpperCase(chars[i]) ? Character.toLowerCase(chars[i])
+                            : Character.toUpperCase(chars[i]);
+                }
+            }
+            return new String(chars);
+        }
+
+        private static boolean isNumber(final String value) {
+            if (value.isEmpty() || value.length() > 18) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
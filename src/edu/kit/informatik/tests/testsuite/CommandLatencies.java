@@ -0,0 +1,168 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Latencies of one file per command word, e.g. "remove" for "remove A;B".
+ * Only the first words seen get an own histogram, the latencies of all
+ * further words are recorded as {@link #OTHER}, so files of random commands
+ * can't grow it without limit.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class CommandLatencies {
+
+    /**
+     * Word the latencies of words beyond the limit are recorded as.
+     */
+    public static final String OTHER = "*";
+
+    static final int MAX_WORDS = 32;
+
+    private final List<String> words = new ArrayList<>();
+    private final List<byte[]> encoded = new ArrayList<>();
+    private final List<LatencyHistogram> histograms = new ArrayList<>();
+
+    /**
+     * Records the latency of a command.
+     *
+     * @param command Encoded command followed by a line separator.
+     * @param nanos   Time between serving the command and matching its output.
+     */
+    void record(final byte[] command, final long nanos) {
+        final int length = wordLength(command);
+        for (int i = 0; i < encoded.size(); i++) {
+            if (matches(encoded.get(i), command, length)) {
+                histograms.get(i).record(nanos);
+                return;
+            }
+        }
+        if (words.size() < MAX_WORDS) {
+            final byte[] word = Arrays.copyOf(command, length);
+            add(new String(word, Charset.defaultCharset()), word).record(nanos);
+        } else {
+            add(OTHER, null).record(nanos);
+        }
+    }
+
+    /**
+     * Getter of the recorded words.
+     *
+     * @return Command words in the order they were first seen.
+     */
+    public List<String> getWords() {
+        return Collections.unmodifiableList(words);
+    }
+
+    /**
+     * Getter of the latencies of one word.
+     *
+     * @param word Command word.
+     * @return Latencies of the word, empty if it wasn't recorded.
+     */
+    public LatencyHistogram get(final String word) {
+        final int index = words.indexOf(word);
+        return index >= 0 ? histograms.get(index) : new LatencyHistogram();
+    }
+
+    /**
+     * Merges the latencies of all words.
+     *
+     * @return New histogram containing all latencies.
+     */
+    public LatencyHistogram total() {
+        final LatencyHistogram total = new LatencyHistogram();
+        for (final LatencyHistogram histogram : histograms) {
+            total.add(histogram);
+        }
+        return total;
+    }
+
+    /**
+     * Writes the latencies in binary form.
+     *
+     * @param out Output to write to.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+        BinaryIO.writeVarInt(out, words.size());
+        for (int i = 0; i < words.size(); i++) {
+            BinaryIO.writeString(out, words.get(i));
+            histograms.get(i).writeTo(out);
+        }
+    }
+
+    /**
+     * Reads latencies written with {@link #writeTo(DataOutput)}.
+     *
+     * @param in Input to read from.
+     * @return Read latencies.
+     * @throws IOException Will be thrown if reading failed.
+     */
+    public static CommandLatencies readFrom(final DataInput in) throws IOException {
+        final CommandLatencies latencies = new CommandLatencies();
+        final int count = (int) BinaryIO.readVarInt(in);
+        for (int i = 0; i < count; i++) {
+            final String word = BinaryIO.readString(in);
+            latencies.words.add(word);
+            latencies.encoded.add(word.equals(OTHER) ? null : word.getBytes(Charset.defaultCharset()));
+            latencies.histograms.add(LatencyHistogram.readFrom(in));
+        }
+        return latencies;
+    }
+
+    private LatencyHistogram add(final String word, final byte[] bytes) {
+        final int index = words.indexOf(word);
+        if (index >= 0) {
+            return histograms.get(index);
+        }
+        final LatencyHistogram histogram = new LatencyHistogram();
+        words.add(word);
+        encoded.add(bytes);
+        histograms.add(histogram);
+        return histogram;
+    }
+
+    /**
+     * Finds the end of the first word of a command.
+     *
+     * @param command Encoded command.
+     * @return Length of the first word.
+     */
+    static int wordLength(final byte[] command) {
+        int length = 0;
+        while (length < command.length && command[length] != ' ' && command[length] != '\r'
+                && command[length] != '\n') {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Compares a word with the first word of a command.
+     *
+     * @param word    Encoded word or null for {@link #OTHER}.
+     * @param command Encoded command.
+     * @param length  Length of the first word of the command.
+     * @return true, if the command starts with the word.
+     */
+    static boolean matches(final byte[] word, final byte[] command, final int length) {
+        if (word == null || word.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word[i] != command[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
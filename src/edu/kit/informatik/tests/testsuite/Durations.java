@@ -0,0 +1,105 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Durations of test files recorded in previous runs. Used to estimate how long
+ * a file takes when the files are split into shards.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class Durations {
+
+    private static final int MAGIC = 0x54534455;
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final Map<String, Long> durations = new HashMap<>();
+
+    /**
+     * Initialises a store and loads the durations recorded in file.
+     *
+     * @param file File the durations are stored in.
+     */
+    public Durations(final File file) {
+        this.file = file;
+        if (file.isFile()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                    final int count = (int) BinaryIO.readVarInt(in);
+                    for (int i = 0; i < count; i++) {
+                        durations.put(BinaryIO.readString(in), BinaryIO.readVarInt(in));
+                    }
+                }
+            } catch (IOException e) {
+                durations.clear();
+                System.err.println(TestSuite.ERR_PREF + "Ignoring broken durations: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Getter of a recorded duration.
+     *
+     * @param name Name of the test file.
+     * @return Duration in nanoseconds or -1 if none was recorded.
+     */
+    public synchronized long get(final String name) {
+        final Long duration = durations.get(name);
+        return duration != null ? duration : -1;
+    }
+
+    /**
+     * Records the durations of tested files. Results of files which couldn't
+     * be tested are ignored.
+     *
+     * @param results Results of the files.
+     */
+    public synchronized void record(final Collection<FileResult> results) {
+        for (final FileResult result : results) {
+            if (result.getCases() > 0 && result.getDuration() > 0) {
+                durations.put(result.getName(), result.getDuration());
+            }
+        }
+    }
+
+    /**
+     * Writes all durations to the file of this store. The file is replaced at
+     * once, so shards reading it never see half of it.
+     *
+     * @throws IOException Will be thrown if writing failed.
+     */
+    public synchronized void save() throws IOException {
+        final File dir = file.getAbsoluteFile().getParentFile();
+        final File temp = File.createTempFile(file.getName(), ".tmp", dir);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            BinaryIO.writeVarInt(out, durations.size());
+            for (final Map.Entry<String, Long> entry : durations.entrySet()) {
+                BinaryIO.writeString(out, entry.getKey());
+                BinaryIO.writeVarInt(out, entry.getValue());
+            }
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
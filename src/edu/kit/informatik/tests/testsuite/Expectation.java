@@ -0,0 +1,615 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Expected output of one case, compiled once into a matcher working on the
+ * bytes the tested program writes. Options are given in front of the
+ * expectation, each starting with '!':
+ * <ul>
+ * <li>- '!C' compares ASCII letters ignoring their case.</li>
+ * <li>- '!U' accepts the lines in any order.</li>
+ * <li>- '!R' matches the rest as regular expression, see
+ * {@link ByteRegex}.</li>
+ * <li>- '!N0.01 3.14' accepts numbers differing at most 0.01 from 3.14.</li>
+ * </ul>
+ * '00err' accepts every output starting with "Error".
+ * <p>
+ * Output is matched while it arrives: {@link #begin()} starts an output, its
+ * lines are passed in pieces to {@link #feed(byte[], int, int)} and ended with
+ * {@link #endLine()}. Apart from '!U' and '!N', which keep the current line,
+ * no output is buffered. The state belongs to the expectation, so only one
+ * output can be matched against it at a time.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public abstract class Expectation {
+
+    /**
+     * Line separator encoded like the output of the tested program.
+     */
+    static final byte[] LINE_SEPARATOR = encode(System.lineSeparator());
+
+    private static final String ERROR_EXPECTATION = "00err";
+    private static final byte[] ERROR_PREFIX = encode("Error");
+
+    private final String representation;
+
+    private Expectation(final String representation) {
+        this.representation = representation;
+    }
+
+    /**
+     * Compiles an expectation of a .test-File.
+     *
+     * @param rep Expectation like it is stored in a TestFile.
+     * @return Compiled expectation.
+     * @throws IllegalArgumentException Will be thrown if the options are
+     *                                  invalid or the expectation doesn't
+     *                                  fit its mode.
+     */
+    public static Expectation compile(final String rep) {
+        boolean ignoreCase = false;
+        boolean unordered = false;
+        int pos = 0;
+        while (rep.length() > pos + 1 && rep.charAt(pos) == '!') {
+            final char option = rep.charAt(pos + 1);
+            pos += 2;
+            if (option == 'C') {
+                ignoreCase = true;
+            } else if (option == 'U') {
+                unordered = true;
+            } else if (option == 'R') {
+                if (unordered) {
+                    throw new IllegalArgumentException("Options R and U can't be combined");
+                }
+                return new Pattern(ByteRegex.compile(rep.substring(pos), ignoreCase));
+            } else if (option == 'N') {
+                if (unordered || ignoreCase) {
+                    throw new IllegalArgumentException("Option N can't be combined");
+                }
+                final int blank = rep.indexOf(' ', pos);
+                if (blank < 0) {
+                    throw new IllegalArgumentException("Expected ' ' after tolerance in '" + rep + "'");
+                }
+                return new Numeric(parseNumber(rep.substring(pos, blank)), parseNumber(rep.substring(blank + 1)));
+            } else {
+                pos -= 2;
+                break;
+            }
+        }
+        final String value = rep.substring(pos);
+        if (unordered) {
+            return new Unordered(value, ignoreCase);
+        }
+        return new Exact(value, ignoreCase, value.equals(ERROR_EXPECTATION));
+    }
+
+    /**
+     * Checks if the output written at once matches this expectation. A trailing
+     * line separator is accepted, as println writes it together with the
+     * output.
+     *
+     * @param b   Buffer containing the output.
+     * @param off Start of the output.
+     * @param len Length of the output.
+     * @return true, if the output matches, false otherwise.
+     */
+    public synchronized boolean matches(final byte[] b, final int off, final int len) {
+        begin();
+        final int end = off + len;
+        int start = off;
+        while (true) {
+            int lineEnd = start;
+            while (lineEnd < end && !startsWith(b, lineEnd, end - lineEnd, LINE_SEPARATOR)) {
+                lineEnd++;
+            }
+            if (feed(b, start, lineEnd - start) != lineEnd - start) {
+                return false;
+            }
+            if (lineEnd == end) {
+                return isComplete();
+            }
+            if (!endLine()) {
+                return false;
+            }
+            start = lineEnd + LINE_SEPARATOR.length;
+            if (start == end) {
+                return isComplete();
+            }
+        }
+    }
+
+    /**
+     * Starts matching a new output.
+     */
+    abstract void begin();
+
+    /**
+     * Matches the next bytes of the current line.
+     *
+     * @param b   Buffer containing the bytes, without line separator.
+     * @param off Start of the bytes.
+     * @param len Count of the bytes.
+     * @return Count of bytes matching before the first difference, len if
+     * all of them match so far.
+     */
+    abstract int feed(byte[] b, int off, int len);
+
+    /**
+     * Ends the current line.
+     *
+     * @return true, if the output may contain a line break here.
+     */
+    abstract boolean endLine();
+
+    /**
+     * Checks if the output passed so far is complete.
+     *
+     * @return true, if the output ending here matches.
+     */
+    abstract boolean isComplete();
+
+    /**
+     * Describes the expected output near the first difference.
+     *
+     * @return Part of the expectation to show in failures.
+     */
+    String expectedNear() {
+        return representation;
+    }
+
+    /**
+     * Checks if a region of a buffer starts with the given bytes.
+     *
+     * @param b      Buffer containing the region.
+     * @param off    Start of the region.
+     * @param len    Length of the region.
+     * @param prefix Bytes to check for.
+     * @return true, if the region starts with prefix, false otherwise.
+     */
+    static boolean startsWith(final byte[] b, final int off, final int len, final byte[] prefix) {
+        return len >= prefix.length && regionEquals(b, off, prefix.length, prefix, false);
+    }
+
+    /**
+     * Checks if a region of a buffer ends with the given bytes.
+     *
+     * @param b      Buffer containing the region.
+     * @param off    Start of the region.
+     * @param len    Length of the region.
+     * @param suffix Bytes to check for.
+     * @return true, if the region ends with suffix, false otherwise.
+     */
+    static boolean endsWith(final byte[] b, final int off, final int len, final byte[] suffix) {
+        return len >= suffix.length && regionEquals(b, off + len - suffix.length, suffix.length, suffix, false);
+    }
+
+    /**
+     * Compares a region of a buffer with the given bytes.
+     *
+     * @param b          Buffer containing the region.
+     * @param off        Start of the region.
+     * @param len        Length of the region.
+     * @param other      Bytes to compare with.
+     * @param ignoreCase true, if ASCII letters should be compared ignoring
+     *                   their case.
+     * @return true, if the region equals other, false otherwise.
+     */
+    static boolean regionEquals(final byte[] b, final int off, final int len, final byte[] other,
+                                final boolean ignoreCase) {
+        if (len != other.length) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            final byte actual = b[off + i];
+            if (actual != other[i] && (!ignoreCase || toLowerCase(actual) != toLowerCase(other[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte toLowerCase(final byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static byte[] encode(final String value) {
+        return value.getBytes(Charset.defaultCharset());
+    }
+
+    private static double parseNumber(final String value) {
+        final byte[] bytes = encode(value);
+        final double number = parseNumber(bytes, 0, bytes.length);
+        if (Double.isNaN(number)) {
+            throw new IllegalArgumentException("Illegal number '" + value + "'");
+        }
+        return number;
+    }
+
+    /**
+     * Parses a decimal number like -1.5e3 out of a region of a buffer.
+     *
+     * @param b   Buffer containing the region.
+     * @param off Start of the region.
+     * @param len Length of the region.
+     * @return Parsed number or NaN if the region isn't a number.
+     */
+    static double parseNumber(final byte[] b, final int off, final int len) {
+        final int end = off + len;
+        int i = off;
+        final boolean negative = i < end && b[i] == '-';
+        if (i < end && (b[i] == '-' || b[i] == '+')) {
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            if (b[i] >= '0' && b[i] <= '9') {
+                if (mantissa < Long.MAX_VALUE / 10 - 9) {
+                    mantissa = mantissa * 10 + (b[i] - '0');
+                    exponent -= fraction ? 1 : 0;
+                } else {
+                    exponent += fraction ? 0 : 1;
+                }
+                digits++;
+            } else if (b[i] == '.' && !fraction && digits > 0) {
+                fraction = true;
+                if (i + 1 == end) {
+                    return Double.NaN;
+                }
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        if (i < end && (b[i] == 'e' || b[i] == 'E')) {
+            i++;
+            final boolean negativeExponent = i < end && b[i] == '-';
+            if (i < end && (b[i] == '-' || b[i] == '+')) {
+                i++;
+            }
+            int value = 0;
+            final int start = i;
+            for (; i < end && b[i] >= '0' && b[i] <= '9' && i - start < 4; i++) {
+                value = value * 10 + (b[i] - '0');
+            }
+            if (i == start) {
+                return Double.NaN;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+        final double number = exponent < 0 ? mantissa / Math.pow(10, -exponent) : mantissa * Math.pow(10, exponent);
+        return negative ? -number : number;
+    }
+
+    @Override
+    public String toString() {
+        return representation;
+    }
+
+    /**
+     * Output equal to the expectation, possibly ignoring case.
+     */
+    private static final class Exact extends Expectation {
+        private static final int NEAR = 40;
+
+        private final byte[] expected;
+        private final boolean ignoreCase;
+        private final boolean error;
+        private int pos;
+        private boolean alive;
+        private boolean ended;
+        private int prefix;
+
+        Exact(final String value, final boolean ignoreCase, final boolean error) {
+            super(value);
+            this.expected = encode(value.replace("\n", System.lineSeparator()));
+            this.ignoreCase = ignoreCase;
+            this.error = error;
+        }
+
+        @Override
+        void begin() {
+            pos = 0;
+            alive = true;
+            ended = false;
+            prefix = error ? 0 : -1;
+        }
+
+        @Override
+        int feed(final byte[] b, final int off, final int len) {
+            if (prefix == ERROR_PREFIX.length) {
+                return len;
+            }
+            for (int i = 0; i < len; i++) {
+                final byte actual = b[off + i];
+                boolean matched = false;
+                if (prefix >= 0) {
+                    prefix = actual == ERROR_PREFIX[prefix] ? prefix + 1 : -1;
+                    matched = prefix > 0;
+                }
+                if (alive) {
+                    alive = pos < expected.length && (actual == expected[pos]
+                            || ignoreCase && toLowerCase(actual) == toLowerCase(expected[pos]));
+                    if (alive) {
+                        pos++;
+                        matched = true;
+                    }
+                }
+                if (!matched) {
+                    return i;
+                }
+                if (prefix == ERROR_PREFIX.length) {
+                    return len;
+                }
+            }
+            return len;
+        }
+
+        @Override
+        boolean endLine() {
+            if (prefix == ERROR_PREFIX.length) {
+                return true;
+            }
+            prefix = -1;
+            if (alive && !ended && startsWith(expected, pos, expected.length - pos, LINE_SEPARATOR)) {
+                pos += LINE_SEPARATOR.length;
+                return true;
+            }
+            alive = alive && pos == expected.length && !ended;
+            ended = alive;
+            return alive;
+        }
+
+        @Override
+        boolean isComplete() {
+            return prefix == ERROR_PREFIX.length || alive && pos == expected.length;
+        }
+
+        @Override
+        String expectedNear() {
+            if (error && !alive) {
+                return "Error...";
+            }
+            int start = pos;
+            while (start > 0 && pos - start < NEAR && !endsWith(expected, 0, start, LINE_SEPARATOR)) {
+                start--;
+            }
+            int end = pos;
+            while (end < expected.length && end - pos < NEAR
+                    && !startsWith(expected, end, expected.length - end, LINE_SEPARATOR)) {
+                end++;
+            }
+            return (start > 0 && !endsWith(expected, 0, start, LINE_SEPARATOR) ? "..." : "")
+                    + new String(expected, start, end - start, Charset.defaultCharset())
+                    + (end < expected.length && !startsWith(expected, end, expected.length - end, LINE_SEPARATOR)
+                    ? "..." : "");
+        }
+    }
+
+    /**
+     * Output matching a regular expression.
+     */
+    private static final class Pattern extends Expectation {
+        private final ByteRegex regex;
+        private boolean ended;
+        private boolean lineMatched;
+
+        Pattern(final ByteRegex regex) {
+            super("/" + regex + "/");
+            this.regex = regex;
+        }
+
+        @Override
+        void begin() {
+            regex.reset();
+            ended = false;
+            lineMatched = false;
+        }
+
+        @Override
+        int feed(final byte[] b, final int off, final int len) {
+            if (ended) {
+                return 0;
+            }
+            if (len > 0) {
+                lineMatched = false;
+            }
+            return regex.step(b, off, len);
+        }
+
+        @Override
+        boolean endLine() {
+            if (ended) {
+                return false;
+            }
+            final boolean matched = regex.isMatch();
+            if (regex.step(LINE_SEPARATOR, 0, LINE_SEPARATOR.length) == LINE_SEPARATOR.length) {
+                lineMatched = matched;
+                return true;
+            }
+            ended = matched;
+            return matched;
+        }
+
+        @Override
+        boolean isComplete() {
+            return ended || lineMatched || regex.isMatch();
+        }
+    }
+
+    /**
+     * Number differing at most a tolerance from the expected one. The line is
+     * kept until it ends, numbers are never longer than a few bytes.
+     */
+    private static final class Numeric extends Expectation {
+        private static final int MAX_LENGTH = 64;
+
+        private final double tolerance;
+        private final double expected;
+        private final byte[] line = new byte[MAX_LENGTH];
+        private int length;
+        private boolean matched;
+
+        Numeric(final double tolerance, final double expected) {
+            super(expected + " +- " + tolerance);
+            this.tolerance = tolerance;
+            this.expected = expected;
+        }
+
+        @Override
+        void begin() {
+            length = 0;
+            matched = false;
+        }
+
+        @Override
+        int feed(final byte[] b, final int off, final int len) {
+            if (matched) {
+                return 0;
+            }
+            final int count = Math.min(len, MAX_LENGTH - length);
+            System.arraycopy(b, off, line, length, count);
+            length += count;
+            return count;
+        }
+
+        @Override
+        boolean endLine() {
+            matched = !matched && isComplete();
+            return matched;
+        }
+
+        @Override
+        boolean isComplete() {
+            return matched || Math.abs(parseNumber(line, 0, length) - expected) <= tolerance;
+        }
+    }
+
+    /**
+     * Lines equal to the expected lines in any order. Distinct expected lines
+     * are stored in an open addressing table keyed by their hash, so every
+     * output line is looked up in constant time.
+     */
+    private static final class Unordered extends Expectation {
+        private final byte[][] lines;
+        private final int[] counts;
+        private final int[] remaining;
+        private final int[] table;
+        private final int total;
+        private final boolean ignoreCase;
+        private final byte[] current;
+        private int lineCount;
+        private int length;
+
+        Unordered(final String value, final boolean ignoreCase) {
+            super(value + " (any order)");
+            this.ignoreCase = ignoreCase;
+            final String[] split = value.split("\n", -1);
+            final List<byte[]> distinct = new ArrayList<>();
+            final List<Integer> distinctCounts = new ArrayList<>();
+            int longest = 0;
+            table = new int[Integer.highestOneBit(Math.max(1, split.length) * 2) * 2];
+            Arrays.fill(table, -1);
+            for (final String line : split) {
+                final byte[] bytes = encode(line);
+                longest = Math.max(longest, bytes.length);
+                final int index = find(bytes, 0, bytes.length, distinct);
+                if (index >= 0) {
+                    distinctCounts.set(index, distinctCounts.get(index) + 1);
+                } else {
+                    insert(bytes, distinct.size());
+                    distinct.add(bytes);
+                    distinctCounts.add(1);
+                }
+            }
+            lines = distinct.toArray(new byte[distinct.size()][]);
+            counts = new int[lines.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = distinctCounts.get(i);
+            }
+            total = split.length;
+            remaining = new int[counts.length];
+            current = new byte[longest];
+        }
+
+        @Override
+        void begin() {
+            System.arraycopy(counts, 0, remaining, 0, counts.length);
+            lineCount = 0;
+            length = 0;
+        }
+
+        @Override
+        int feed(final byte[] b, final int off, final int len) {
+            final int count = Math.min(len, current.length - length);
+            System.arraycopy(b, off, current, length, count);
+            length += count;
+            return count;
+        }
+
+        @Override
+        boolean endLine() {
+            final int index = find(current, 0, length, null);
+            if (index < 0 || remaining[index] == 0) {
+                return false;
+            }
+            remaining[index]--;
+            lineCount++;
+            length = 0;
+            return true;
+        }
+
+        @Override
+        boolean isComplete() {
+            if (lineCount == total) {
+                return length == 0;
+            }
+            if (lineCount + 1 != total) {
+                return false;
+            }
+            final int index = find(current, 0, length, null);
+            return index >= 0 && remaining[index] > 0;
+        }
+
+        private int hash(final byte[] b, final int off, final int len) {
+            int hash = 0x811C9DC5;
+            for (int i = off; i < off + len; i++) {
+                hash = (hash ^ (ignoreCase ? toLowerCase(b[i]) : b[i])) * 0x01000193;
+            }
+            return hash ^ hash >>> 16;
+        }
+
+        private void insert(final byte[] line, final int index) {
+            int slot = hash(line, 0, line.length) & (table.length - 1);
+            while (table[slot] >= 0) {
+                slot = (slot + 1) & (table.length - 1);
+            }
+            table[slot] = index;
+        }
+
+        private int find(final byte[] b, final int off, final int len, final List<byte[]> building) {
+            int slot = hash(b, off, len) & (table.length - 1);
+            while (table[slot] >= 0) {
+                final byte[] line = building != null ? building.get(table[slot]) : lines[table[slot]];
+                if (regionEquals(b, off, len, line, ignoreCase)) {
+                    return table[slot];
+                }
+                slot = (slot + 1) & (table.length - 1);
+            }
+            return -1;
+        }
+    }
+}
@@ -1,35 +1,32 @@
 package edu.kit.informatik.tests.testsuite;
 
-import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
-import java.io.StringReader;
-import java.util.List;
+import java.io.InputStream;
 
 /**
- * InputStream that expects reading and reads specific lines.
+ * InputStream that expects reading and reads specific lines. Reading ends the
+ * output of the previous command.
  *
  * @author Moritz Hepp
  * @version 1.0
  */
-public class ExpectionInputStream extends PipedInputStream {
+public class ExpectionInputStream extends InputStream {
 
-    private boolean expecting;
-    private int count;
-    private final List<?> inputs;
-    private ExpectionOutputStream out;
+    private final CommandChannel channel;
+    private final ExpectionOutputStream output;
+    private final byte[] single = new byte[1];
 
     /**
      * Initialises a new InputStream.
      *
-     * @param ins
-     *            Lines the stream expects.
+     * @param channel
+     *            Channel serving the lines the stream expects.
+     * @param output
+     *            Stream matching the outputs of the commands.
      */
-    public ExpectionInputStream(final List<?> ins) {
+    public ExpectionInputStream(final CommandChannel channel, final ExpectionOutputStream output) {
         super();
-        inputs = ins;
-        count = 0;
-        expecting = true;
+        this.channel = channel;
+        this.output = output;
     }
 
     /**
@@ -39,7 +36,7 @@ public class ExpectionInputStream extends PipedInputStream {
      *            Value of expecting.
      */
     public void setExpecting(final boolean val) {
-        expecting = val;
+        channel.setInputTurn(val);
     }
 
     /**
@@ -48,54 +45,23 @@ public class ExpectionInputStream extends PipedInputStream {
      * @return value of expecting.
      */
     public boolean isExpecting() {
-        return expecting;
+        return channel.isInputTurn();
     }
 
     @Override
-    public void connect(final PipedOutputStream str) throws IOException {
-        if (str instanceof ExpectionOutputStream) {
-            super.connect(str);
-            out = (ExpectionOutputStream) str;
-        } else {
-            System.err.println(TestSuite.ERR_PREF + "Tried to connect with non ExpectionOutputStream instance!");
-            System.exit(-1);
-        }
+    public synchronized int read() {
+        return read(single, 0, 1) == 1 ? single[0] & 0xFF : -1;
     }
 
     @Override
-    public int read(final byte[] b, final int off, final int len) throws IOException {
-        int result = -1;
-        if (expecting) {
-            if (inputs.size() > count) {
-                final char[] ch = new char[b.length];
-                final StringReader reader = new StringReader(inputs.get(count).toString() + System.lineSeparator());
-
-                result = reader.read(ch, off, len);
+    public int read(final byte[] b, final int off, final int len) {
+        output.finish();
+        return channel.read(b, off, len);
+    }
 
-                for (int i = off; i < result; i++) {
-                    b[i] = (byte) ch[i];
-                }
-                count++;
-                expecting = false;
-            } else if (inputs.size() == count) {
-                final byte[] by = ("quit" + System.lineSeparator()).getBytes();
-                System.arraycopy(by, 0, b, 0, by.length);
-                result = by.length;
-                expecting = false;
-            } else {
-                System.err.println(TestSuite.ERR_PREF + "End of expectations reached!");
-                System.exit(-2);
-            }
-        } else {
-            if (this.out.isExpecting()) {
-                System.err.println(
-                        TestSuite.ERR_PREF + "Expecting " + (this.out.getExpectationSize() - this.out.getCount())
-                                + " more outputs but got call to read!");
-            } else {
-                System.err.println(TestSuite.ERR_PREF + "Reading while not expected; case: " + count);
-                System.exit(-2);
-            }
-        }
-        return result;
+    @Override
+    public int available() {
+        output.finish();
+        return channel.available();
     }
-}
\ No newline at end of file
+}
@@ -1,61 +1,58 @@
 package edu.kit.informatik.tests.testsuite;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.io.PrintStream;
-import java.io.PrintWriter;
-import java.util.Arrays;
-import java.util.List;
+import java.nio.charset.Charset;
 
 /**
  * OutputStream multiple outputs and only writing if output matches the expected
- * output.
+ * output. The output is split into lines while it is written and every line is
+ * matched as soon as it arrives, so an output may be written in any pieces and
+ * only a short excerpt of the current line is kept, no matter how long the
+ * output is. An output ends when the program reads the next command or ends,
+ * see {@link #finish()}, so only then it has to be complete.
  *
  * @author Moritz Hepp
  * @version 1.0
  */
-public class ExpectionOutputStream extends PipedOutputStream {
+public class ExpectionOutputStream extends OutputStream {
 
-    private final List<?> expectations;
-    private int count = 0;
-    private boolean newLineAllowed = false;
-    private ExpectionInputStream in;
+    private static final byte[] ERR_PREF = TestSuite.ERR_PREF.getBytes(Charset.defaultCharset());
+    private static final byte[] DEF_PREF = TestSuite.DEF_PREF.getBytes(Charset.defaultCharset());
+
+    private static final int NEAR = 40;
+
+    private final CommandChannel channel;
+    private final byte[] single = new byte[1];
+    private final byte[] window = new byte[NEAR];
+    private boolean lineStart = true;
+    private boolean messageLine;
+    private int separator;
+    private Expectation expectation;
+    private int line;
+    private int column;
+    private int recent;
+    private long writtenAt;
     private final PrintStream out;
-    private PrintWriter log;
+    private final OutputStream log;
 
     /**
-     * Initialises a PipedStream with a list of expected inputs.
+     * Initialises a stream expecting the outputs of the cases a channel serves.
      *
-     * @param expected Expected lines to print.
-     * @param str      Next OutputStream.
-     * @param logFile  File to save the output in.
+     * @param channel Channel providing the expected outputs and to hand the
+     *                turn back to the input.
+     * @param str     Next OutputStream.
+     * @param logFile File to save the output in, written in the background.
      * @throws IOException Will be thrown if initialisation of logwriter went wrong.
      */
-    public ExpectionOutputStream(final List<?> expected, final OutputStream str, final File logFile)
+    public ExpectionOutputStream(final CommandChannel channel, final OutputStream str, final File logFile)
             throws IOException {
         super();
-        expectations = expected;
+        this.channel = channel;
         this.out = new PrintStream(str);
-        if (logFile.exists()) {
-            if (!logFile.delete()) {
-                throw new IOException("Deleting previous file failed!");
-            }
-        } else {
-            if (!logFile.getParentFile().exists()) {
-                if (logFile.mkdirs()) {
-                    throw new IOException("Deleting previous file failed!");
-                }
-            }
-        }
-        if (logFile.createNewFile()) {
-            log = new PrintWriter(new FileWriter(logFile));
-        } else {
-            throw new IOException("Creating new logFile failed!");
-        }
+        this.log = new AsyncLog(logFile);
     }
 
     /**
@@ -64,26 +61,26 @@ public class ExpectionOutputStream extends PipedOutputStream {
      * @return Count of already printed lines.
      */
     public int getCount() {
-        return count;
+        return channel.getOutputCount();
     }
 
     /**
      * Getter of line count expecting.
      *
-     * @return Size of list of expectations.
+     * @return Count of cases read so far, count of all cases if the channel
+     * read all of them.
      */
     public int getExpectationSize() {
-        return expectations.size();
+        return channel.getCaseCount();
     }
 
     /**
      * Getter of property, if this Stream still expects.
      *
-     * @return true, if count of already printed outputs is smaller then the
-     * size of the expected lines, false otherwise.
+     * @return true, if a case without matched output is left, false otherwise.
      */
     public boolean isExpecting() {
-        return count < this.expectations.size();
+        return channel.expectation() != null;
     }
 
     /**
@@ -96,59 +93,182 @@ public class ExpectionOutputStream extends PipedOutputStream {
     }
 
     @Override
-    public void connect(final PipedInputStream in) throws IOException {
-        if (in instanceof ExpectionInputStream) {
-            super.connect(in);
-            this.in = (ExpectionInputStream) in;
-        } else {
-            System.err.println(TestSuite.ERR_PREF + "Tried to connect with non ExpectionInputStream instance!");
-            System.exit(-1);
-        }
+    public synchronized void write(final int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
     }
 
     @Override
-    public void write(final byte[] b, final int off, final int len) throws IOException {
-        final String out = new String(Arrays.copyOfRange(b, off, len));
-        if (out.startsWith(TestSuite.ERR_PREF) || out.startsWith(TestSuite.DEF_PREF)
-                || (out.matches(System.lineSeparator()) && newLineAllowed)) {
-            this.log.print(out);
-            newLineAllowed = false;
-        } else if (this.isExpecting()) {
-            String sRep = expectations.get(count).toString();
-            // Get options
-            boolean ignoreEquals = false;
-            if (sRep.startsWith("!")) {
-                sRep = sRep.replaceFirst("!", "");
-                // Ignore case
-                if (sRep.startsWith("C")) {
-                    sRep = sRep.replaceFirst("C", "");
-                    ignoreEquals = sRep.equalsIgnoreCase(out);
+    public synchronized void write(final byte[] b, final int off, final int len) throws IOException {
+        if (channel.isAborted()) {
+            return;
+        }
+        final int end = off + len;
+        int i = off;
+        if (lineStart && (Expectation.startsWith(b, off, len, ERR_PREF)
+                || Expectation.startsWith(b, off, len, DEF_PREF))) {
+            messageLine = true;
+        }
+        while (i < end) {
+            if (separator > 0 && b[i] != Expectation.LINE_SEPARATOR[separator]) {
+                final int partial = separator;
+                separator = 0;
+                content(Expectation.LINE_SEPARATOR, 0, partial);
+            } else if (b[i] == Expectation.LINE_SEPARATOR[separator]) {
+                separator++;
+                i++;
+                if (separator == Expectation.LINE_SEPARATOR.length) {
+                    separator = 0;
+                    lineEnded();
                 }
-                //Others are not supported
-            }
-            if (sRep.equals(out) || ignoreEquals || (sRep.equals("00err") && out.startsWith("Error"))
-                    || (out.replace(System.lineSeparator(), "\n").equals(sRep))) {
-                this.log.print(out);
-
-                // quit-cmd has to be written
-                in.setExpecting(true);
-                count++;
-                newLineAllowed = true;
             } else {
-                System.err.println(TestSuite.ERR_PREF + "\nexpected: " + sRep + "\nactual: " + out);
-                newLineAllowed = false;
-                System.exit(-2);
+                int next = i + 1;
+                while (next < end && b[next] != Expectation.LINE_SEPARATOR[0]) {
+                    next++;
+                }
+                content(b, i, next - i);
+                i = next;
+            }
+            if (channel.isAborted()) {
+                return;
             }
-        } else {
-            System.err.println(TestSuite.ERR_PREF + "Unexpected output at case: " + count);
-            newLineAllowed = false;
-            System.exit(-2);
         }
+        this.log.write(b, off, len);
+        if (expectation != null) {
+            writtenAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Ends the output of the current case. Called when the program reads the
+     * next command or ended, as until then it may still write more of the
+     * output.
+     *
+     * @throws TestAbortedError Will be thrown if the output written so far
+     *                          isn't complete.
+     */
+    public synchronized void finish() {
+        if (expectation == null || channel.isAborted()) {
+            return;
+        }
+        if (!expectation.isComplete()) {
+            mismatch(Expectation.LINE_SEPARATOR, 0, 0, column);
+        }
+        expectation = null;
+        line = 0;
+        column = 0;
+        recent = 0;
+        lineStart = true;
+        channel.outputMatched(writtenAt);
+    }
+
+    private void content(final byte[] b, final int off, final int len) {
+        if (len == 0) {
+            return;
+        }
+        if (messageLine) {
+            lineStart = false;
+            return;
+        }
+        if (expectation == null && !begin(b, off, len)) {
+            return;
+        }
+        lineStart = false;
+        final int matched = expectation.feed(b, off, len);
+        if (matched < len) {
+            remember(b, off, matched);
+            mismatch(b, off + matched, len - matched, column + matched);
+        }
+        remember(b, off, len);
+        column += len;
+    }
+
+    private void lineEnded() {
+        if (messageLine) {
+            messageLine = false;
+            lineStart = true;
+            return;
+        }
+        if (expectation == null && !begin(Expectation.LINE_SEPARATOR, 0, 0)) {
+            return;
+        }
+        if (!expectation.endLine()) {
+            mismatch(Expectation.LINE_SEPARATOR, 0, 0, column);
+        }
+        line++;
+        column = 0;
+        recent = 0;
+        lineStart = true;
+    }
+
+    private boolean begin(final byte[] b, final int off, final int len) {
+        expectation = channel.expectation();
+        if (channel.isAborted()) {
+            return false;
+        }
+        if (expectation == null) {
+            System.err.println(TestSuite.ERR_PREF + "Unexpected output at case: " + getCount());
+            throw channel.abort(null, excerpt(b, off, len), "Unexpected output");
+        }
+        expectation.begin();
+        return true;
+    }
+
+    private void remember(final byte[] b, final int off, final int len) {
+        final int count = Math.min(len, NEAR);
+        recent += len - count;
+        for (int i = off + len - count; i < off + len; i++) {
+            window[recent++ % NEAR] = b[i];
+        }
+    }
+
+    private String excerpt(final byte[] b, final int off, final int len) {
+        final int kept = Math.min(recent, NEAR);
+        final byte[] before = new byte[kept];
+        for (int i = 0; i < kept; i++) {
+            before[i] = window[(recent - kept + i) % NEAR];
+        }
+        int after = 0;
+        while (after < Math.min(len, NEAR) && b[off + after] != Expectation.LINE_SEPARATOR[0]) {
+            after++;
+        }
+        return (recent > kept ? "..." : "") + new String(before, Charset.defaultCharset())
+                + new String(b, off, after, Charset.defaultCharset()) + (after == NEAR ? "..." : "");
+    }
+
+    private void mismatch(final byte[] b, final int off, final int len, final int at) {
+        final String expected = expectation.expectedNear();
+        final String actual = excerpt(b, off, len);
+        final String message = "Output doesn't match in line " + (line + 1) + ", column " + (at + 1);
+        System.err.println(TestSuite.ERR_PREF + message + "\nexpected: " + expected + "\nactual: " + actual);
+        throw channel.abort(expected, actual, message);
+    }
+
+    /**
+     * Writes a note of the test suite, e.g. a thread dump, into the log.
+     *
+     * @param note Note to write, each line is prefixed.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    public synchronized void note(final String note) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        for (final String line : note.split("\\R")) {
+            builder.append(TestSuite.DEF_PREF).append(line).append(System.lineSeparator());
+        }
+        this.log.write(builder.toString().getBytes(Charset.defaultCharset()));
     }
 
     @Override
     public void close() throws IOException {
-        super.close();
+        if (channel.getLatencies().getCount() > 0) {
+            this.log.write((TestSuite.DEF_PREF + "latency " + channel.getLatencies() + System.lineSeparator())
+                    .getBytes(Charset.defaultCharset()));
+        }
+        final CommandAllocations allocations = channel.getResources().getCommandAllocations();
+        for (final String word : allocations.getWords()) {
+            this.log.write((TestSuite.DEF_PREF + "allocated " + allocations.describe(word) + System.lineSeparator())
+                    .getBytes(Charset.defaultCharset()));
+        }
         this.log.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of testing one file.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class FileResult {
+
+    private final String name;
+    private final int cases;
+    private final int passedCases;
+    private final long duration;
+    private final List<TestFailure> failures;
+    private final ResourceUsage usage;
+    private final CommandLatencies latencies;
+
+    /**
+     * Initialises a new result.
+     *
+     * @param name        Name of the test file.
+     * @param cases       Count of cases in the file.
+     * @param passedCases Count of cases passed.
+     * @param duration    Duration of the test in nanoseconds.
+     * @param failures    Recorded failures, empty if the file passed.
+     */
+    public FileResult(final String name, final int cases, final int passedCases, final long duration,
+                      final List<TestFailure> failures) {
+        this(name, cases, passedCases, duration, failures, ResourceUsage.NONE);
+    }
+
+    /**
+     * Initialises a new result with measured resources.
+     *
+     * @param name        Name of the test file.
+     * @param cases       Count of cases in the file.
+     * @param passedCases Count of cases passed.
+     * @param duration    Duration of the test in nanoseconds.
+     * @param failures    Recorded failures, empty if the file passed.
+     * @param usage       Resources used while testing.
+     */
+    public FileResult(final String name, final int cases, final int passedCases, final long duration,
+                      final List<TestFailure> failures, final ResourceUsage usage) {
+        this(name, cases, passedCases, duration, failures, usage, new CommandLatencies());
+    }
+
+    /**
+     * Initialises a new result with measured resources and latencies.
+     *
+     * @param name        Name of the test file.
+     * @param cases       Count of cases in the file.
+     * @param passedCases Count of cases passed.
+     * @param duration    Duration of the test in nanoseconds.
+     * @param failures    Recorded failures, empty if the file passed.
+     * @param usage       Resources used while testing.
+     * @param latencies   Latencies of the commands by command word.
+     */
+    public FileResult(final String name, final int cases, final int passedCases, final long duration,
+                      final List<TestFailure> failures, final ResourceUsage usage,
+                      final CommandLatencies latencies) {
+        this.name = name;
+        this.cases = cases;
+        this.passedCases = passedCases;
+        this.duration = duration;
+        this.failures = Collections.unmodifiableList(new ArrayList<>(failures));
+        this.usage = usage;
+        this.latencies = latencies;
+    }
+
+    /**
+     * Creates the result of a file which couldn't be tested.
+     *
+     * @param name    Name of the test file.
+     * @param message Reason why it couldn't be tested.
+     * @return Failed result without cases.
+     */
+    public static FileResult error(final String name, final String message) {
+        return new FileResult(name, 0, 0, 0, Collections.singletonList(new TestFailure(message)));
+    }
+
+    /**
+     * Getter of the name.
+     *
+     * @return Name of the test file.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter of the case count.
+     *
+     * @return Count of cases in the file.
+     */
+    public int getCases() {
+        return cases;
+    }
+
+    /**
+     * Getter of the passed case count.
+     *
+     * @return Count of cases passed.
+     */
+    public int getPassedCases() {
+        return passedCases;
+    }
+
+    /**
+     * Getter of the duration.
+     *
+     * @return Duration of the test in nanoseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Getter of the failures.
+     *
+     * @return Recorded failures, empty if the file passed.
+     */
+    public List<TestFailure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Getter of the used resources.
+     *
+     * @return Resources used while testing, {@link ResourceUsage#NONE} if
+     * they weren't measured.
+     */
+    public ResourceUsage getUsage() {
+        return usage;
+    }
+
+    /**
+     * Getter of the command latencies.
+     *
+     * @return Latencies of the commands by command word, empty if none were
+     * recorded.
+     */
+    public CommandLatencies getCommandLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Getter of the outcome.
+     *
+     * @return true, if no failure was recorded.
+     */
+    public boolean isPassed() {
+        return failures.isEmpty();
+    }
+
+    /**
+     * Writes this result in binary form.
+     *
+     * @param out Output to write to.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+        BinaryIO.writeString(out, name);
+        BinaryIO.writeVarInt(out, cases);
+        BinaryIO.writeVarInt(out, passedCases);
+        BinaryIO.writeVarInt(out, duration);
+        BinaryIO.writeVarInt(out, failures.size());
+        for (final TestFailure failure : failures) {
+            failure.writeTo(out);
+        }
+        usage.writeTo(out);
+        latencies.writeTo(out);
+    }
+
+    /**
+     * Reads a result written with {@link #writeTo(DataOutput)}.
+     *
+     * @param in Input to read from.
+     * @return Read result.
+     * @throws IOException Will be thrown if reading failed.
+     */
+    public static FileResult readFrom(final DataInput in) throws IOException {
+        final String name = BinaryIO.readString(in);
+        final int cases = (int) BinaryIO.readVarInt(in);
+        final int passedCases = (int) BinaryIO.readVarInt(in);
+        final long duration = BinaryIO.readVarInt(in);
+        final int count = (int) BinaryIO.readVarInt(in);
+        final List<TestFailure> failures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            failures.add(TestFailure.readFrom(in));
+        }
+        return new FileResult(name, cases, passedCases, duration, failures, ResourceUsage.readFrom(in),
+                CommandLatencies.readFrom(in));
+    }
+}
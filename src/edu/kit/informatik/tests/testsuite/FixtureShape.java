@@ -0,0 +1,267 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Shape of the fixture files passed as command line arguments, inferred from
+ * the fixtures of existing test files. A fixture is a section of names, one
+ * per line, followed by a separator line and a section of records with fields
+ * separated by ';', like test.graph. Fields always holding a name or a number
+ * are generated as such; with two name fields a record is an edge and the
+ * generated graph is connected without duplicate edges.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+final class FixtureShape {
+
+    private static final int NAME = 0;
+    private static final int NUMBER = 1;
+
+    private final String separator;
+    private final char[] alphabet;
+    private final int minLength;
+    private final int maxLength;
+    private final int minNames;
+    private final int maxNames;
+    private final double recordsPerName;
+    private final int[] kinds;
+    private final long[] minNumbers;
+    private final long[] maxNumbers;
+    private final int[] edgeFields;
+
+    private FixtureShape(final String separator, final Set<Character> alphabet, final int minLength,
+                         final int maxLength, final int minNames, final int maxNames, final double recordsPerName,
+                         final int[] kinds, final long[] minNumbers, final long[] maxNumbers) {
+        this.separator = separator;
+        this.alphabet = new char[alphabet.size()];
+        int i = 0;
+        for (final char c : alphabet) {
+            this.alphabet[i++] = c;
+        }
+        Arrays.sort(this.alphabet);
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.minNames = minNames;
+        this.maxNames = maxNames;
+        this.recordsPerName = recordsPerName;
+        this.kinds = kinds;
+        this.minNumbers = minNumbers;
+        this.maxNumbers = maxNumbers;
+        final List<Integer> names = new ArrayList<>();
+        for (int field = 0; field < kinds.length; field++) {
+            if (kinds[field] == NAME) {
+                names.add(field);
+            }
+        }
+        this.edgeFields = names.size() == 2 ? new int[] {names.get(0), names.get(1)} : null;
+    }
+
+    /**
+     * Infers the shape of fixtures.
+     *
+     * @param samples Existing fixtures.
+     * @return Inferred shape or null if the fixtures don't have the same
+     * shape.
+     * @throws IOException Will be thrown if reading a fixture failed.
+     */
+    static FixtureShape infer(final List<File> samples) throws IOException {
+        String separator = null;
+        final List<List<String>> heads = new ArrayList<>();
+        final List<List<String[]>> bodies = new ArrayList<>();
+        for (final File sample : samples) {
+            final List<String> lines = new ArrayList<>();
+            for (final String line : Files.readAllLines(sample.toPath(), Charset.defaultCharset())) {
+                if (!line.trim().isEmpty()) {
+                    lines.add(line.trim());
+                }
+            }
+            int split = -1;
+            for (int i = 0; i < lines.size() && split < 0; i++) {
+                if (isSeparator(lines.get(i)) && (separator == null || separator.equals(lines.get(i)))) {
+                    split = i;
+                }
+            }
+            if (split < 0) {
+                return null;
+            }
+            separator = lines.get(split);
+            heads.add(lines.subList(0, split));
+            final List<String[]> body = new ArrayList<>();
+            for (final String line : lines.subList(split + 1, lines.size())) {
+                body.add(line.split(";", -1));
+            }
+            bodies.add(body);
+        }
+        if (separator == null) {
+            return null;
+        }
+        final Set<Character> alphabet = new HashSet<>();
+        int minLength = Integer.MAX_VALUE;
+        int maxLength = 0;
+        int minNames = Integer.MAX_VALUE;
+        int maxNames = 0;
+        int names = 0;
+        int records = 0;
+        int fields = -1;
+        for (int i = 0; i < heads.size(); i++) {
+            for (final String name : heads.get(i)) {
+                for (final char c : name.toCharArray()) {
+                    alphabet.add(c);
+                }
+                minLength = Math.min(minLength, name.length());
+                maxLength = Math.max(maxLength, name.length());
+            }
+            minNames = Math.min(minNames, heads.get(i).size());
+            maxNames = Math.max(maxNames, heads.get(i).size());
+            names += heads.get(i).size();
+            records += bodies.get(i).size();
+            for (final String[] record : bodies.get(i)) {
+                if (fields >= 0 && fields != record.length) {
+                    return null;
+                }
+                fields = record.length;
+            }
+        }
+        if (alphabet.isEmpty() || fields <= 0) {
+            return null;
+        }
+        final int[] kinds = new int[fields];
+        final long[] minNumbers = new long[fields];
+        final long[] maxNumbers = new long[fields];
+        Arrays.fill(minNumbers, Long.MAX_VALUE);
+        for (int field = 0; field < fields; field++) {
+            boolean allNames = true;
+            boolean allNumbers = true;
+            for (int i = 0; i < heads.size(); i++) {
+                final Set<String> defined = new HashSet<>(heads.get(i));
+                for (final String[] record : bodies.get(i)) {
+                    allNames &= defined.contains(record[field]);
+                    try {
+                        final long number = Long.parseLong(record[field]);
+                        minNumbers[field] = Math.min(minNumbers[field], number);
+                        maxNumbers[field] = Math.max(maxNumbers[field], number);
+                    } catch (NumberFormatException e) {
+                        allNumbers = false;
+                    }
+                }
+            }
+            if (allNames) {
+                kinds[field] = NAME;
+            } else if (allNumbers) {
+                kinds[field] = NUMBER;
+            } else {
+                return null;
+            }
+        }
+        return new FixtureShape(separator, alphabet, minLength, maxLength, Math.max(2, minNames),
+                Math.max(2, maxNames) * 2, (double) records / Math.max(1, names), kinds, minNumbers, maxNumbers);
+    }
+
+    /**
+     * Reads the names a fixture defines.
+     *
+     * @param fixture Existing fixture.
+     * @return Lines in front of the separator line, all lines if there is
+     * none.
+     * @throws IOException Will be thrown if reading the fixture failed.
+     */
+    static List<String> names(final File fixture) throws IOException {
+        final List<String> names = new ArrayList<>();
+        for (final String line : Files.readAllLines(fixture.toPath(), Charset.defaultCharset())) {
+            if (isSeparator(line.trim())) {
+                if (!line.trim().isEmpty()) {
+                    break;
+                }
+            } else {
+                names.add(line.trim());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Draws a random name built like the names of the fixtures.
+     *
+     * @param random Source of randomness.
+     * @return New name.
+     */
+    String name(final Random random) {
+        final char[] name = new char[minLength + random.nextInt(maxLength - minLength + 1)];
+        for (int i = 0; i < name.length; i++) {
+            name[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return new String(name);
+    }
+
+    /**
+     * Draws a random fixture and writes it into a file.
+     *
+     * @param random Source of randomness.
+     * @param file   File to write the fixture to.
+     * @return Names defined by the fixture.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    List<String> generate(final Random random, final File file) throws IOException {
+        final int count = minNames + random.nextInt(maxNames - minNames + 1);
+        final List<String> names = new ArrayList<>();
+        final Set<String> used = new HashSet<>();
+        for (int attempt = 0; names.size() < count && attempt < count * 20; attempt++) {
+            final String name = name(random);
+            if (used.add(name.toLowerCase(Locale.ROOT))) {
+                names.add(name);
+            }
+        }
+        final StringBuilder content = new StringBuilder();
+        for (final String name : names) {
+            content.append(name).append(System.lineSeparator());
+        }
+        content.append(separator).append(System.lineSeparator());
+        final int records = Math.max(names.size() - 1, (int) Math.round(recordsPerName * names.size()));
+        final Map<String, Boolean> edges = new HashMap<>();
+        for (int i = 0; i < records && names.size() > 1; i++) {
+            final String[] record = new String[kinds.length];
+            for (int field = 0; field < kinds.length; field++) {
+                if (kinds[field] == NAME) {
+                    record[field] = names.get(random.nextInt(names.size()));
+                } else {
+                    record[field] = String.valueOf(minNumbers[field]
+                            + (long) (random.nextDouble() * (maxNumbers[field] - minNumbers[field] + 1)));
+                }
+            }
+            if (edgeFields != null) {
+                final int from = i + 1 < names.size() ? i + 1 : random.nextInt(names.size());
+                final int to = i + 1 < names.size() ? random.nextInt(i + 1) : random.nextInt(names.size());
+                record[edgeFields[0]] = names.get(from);
+                record[edgeFields[1]] = names.get(to);
+                if (from == to || edges.put(Math.min(from, to) + ";" + Math.max(from, to), true) != null) {
+                    continue;
+                }
+            }
+            content.append(String.join(";", record)).append(System.lineSeparator());
+        }
+        Files.write(file.toPath(), content.toString().getBytes(Charset.defaultCharset()));
+        return names;
+    }
+
+    private static boolean isSeparator(final String line) {
+        for (final char c : line.toCharArray()) {
+            if (Character.isLetterOrDigit(c) || c == ';') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
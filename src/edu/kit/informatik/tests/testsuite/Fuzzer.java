@@ -0,0 +1,442 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Differential fuzzing of the tested class against a reference
+ * implementation. The grammar of the commands and the shape of the fixtures
+ * are inferred from the existing .test-Files; random command sequences on
+ * random fixtures are run by the reference first and its outputs are expected
+ * from the tested class. Both run in memory in the same JVM, each sequence in
+ * freshly loaded classes. Error messages only have to start with "Error".
+ * <p>
+ * Sequences diverging in the same way, i.e. with the same command word and
+ * the same kind of failure, are reported once. For each of them the shortest
+ * sequence found is written as .test-File into the "fuzz" directory of the
+ * logs, together with its fixture, so it can be added to the tests.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class Fuzzer {
+
+    /**
+     * Name of the directory in the logs holding fixtures and found files.
+     */
+    public static final String DIR_NAME = "fuzz";
+
+    private static final long DEFAULT_COMMAND_DEADLINE = TimeUnit.SECONDS.toNanos(1);
+    private static final long REFERENCE_TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    private final SuiteConfig config;
+    private final Class<?> reference;
+    private final PrintStream out;
+    private long commands = 1000000;
+    private int length = 300;
+    private long seed = System.nanoTime();
+
+    /**
+     * Initialises a fuzzer testing the class of a configuration.
+     *
+     * @param config    Configuration providing the tests directory, tested
+     *                  class, parallelism and deadlines.
+     * @param reference Class whose outputs are expected.
+     */
+    public Fuzzer(final SuiteConfig config, final Class<?> reference) {
+        this.config = config;
+        this.reference = reference;
+        this.out = config.getOut();
+    }
+
+    /**
+     * Setter of the count of commands to run.
+     *
+     * @param commands Count of commands over all sequences.
+     */
+    public void setCommands(final long commands) {
+        this.commands = commands;
+    }
+
+    /**
+     * Setter of the sequence length.
+     *
+     * @param length Most commands of one sequence, each sequence has between
+     *               1 and length commands.
+     */
+    public void setLength(final int length) {
+        this.length = Math.max(1, length);
+    }
+
+    /**
+     * Setter of the seed. Runs with the same seed, parallelism and classes
+     * generate the same sequences.
+     *
+     * @param seed Seed of all random choices.
+     */
+    public void setSeed(final long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Infers the grammar, runs the configured count of commands on all
+     * threads and prints a summary.
+     *
+     * @return One result per kind of divergence, named like the written
+     * .test-File.
+     * @throws IOException Will be thrown if the tests directory doesn't
+     *                     contain readable .test-Files or the fuzz directory
+     *                     couldn't be created.
+     */
+    public SuiteResult run() throws IOException {
+        final File dir = new File(config.getLogDir(), DIR_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Failed to create fuzz-directory " + dir);
+        }
+        StreamRouter.install();
+        final List<String> inputs = new ArrayList<>();
+        final List<String[]> argumentSets = new ArrayList<>();
+        final Set<File> samples = new LinkedHashSet<>();
+        final File[] files = config.getTestsDir().listFiles((d, name) -> name.endsWith(".test"));
+        for (final File f : files != null ? files : new File[0]) {
+            try {
+                final TestFile test = TestFileParser.load(f, new File(config.getLogDir(), "compiled"));
+                inputs.addAll(test.getInputs());
+                final String[] arguments = test.getArguments() != null ? test.getArguments() : new String[0];
+                argumentSets.add(arguments);
+                for (final String argument : arguments) {
+                    final File fixture = fixture(argument);
+                    if (fixture.isFile()) {
+                        samples.add(fixture);
+                    }
+                }
+            } catch (ParseException e) {
+                System.err.println(TestSuite.ERR_PREF + "Ignoring bad formatted file " + f.getName() + ": "
+                        + e.getMessage());
+            }
+        }
+        final List<String> names = new ArrayList<>();
+        for (final File sample : samples) {
+            names.addAll(FixtureShape.names(sample));
+        }
+        final CommandGrammar grammar;
+        try {
+            grammar = CommandGrammar.infer(inputs, names);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Tests directory doesn't contain commands to fuzz with: " + e.getMessage());
+        }
+        final FixtureShape shape = samples.isEmpty() ? null : FixtureShape.infer(new ArrayList<>(samples));
+        out.println(TestSuite.DEF_PREF + "## fuzz: " + config.getTestClass().getSimpleName() + " against "
+                + reference.getSimpleName() + ", seed " + seed + ", commands " + grammar
+                + (shape != null ? ", generated fixtures" : ", fixtures of the tests"));
+
+        final Run run = new Run(dir, grammar, shape, new ArrayList<>(samples), argumentSets);
+        final ExecutorService executor = Executors.newFixedThreadPool(config.getParallelism(), runnable -> {
+            final Thread thread = new Thread(runnable, "TestSuite-fuzz-" + run.threads.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        });
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int worker = 0; worker < config.getParallelism(); worker++) {
+            final int index = worker;
+            futures.add(executor.submit(() -> {
+                run.work(index);
+                return null;
+            }));
+        }
+        try {
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            System.err.println(TestSuite.ERR_PREF + "Interrupted while fuzzing!");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println(TestSuite.ERR_PREF + "Something went wrong while fuzzing!");
+            e.getCause().printStackTrace();
+        } finally {
+            executor.shutdownNow();
+        }
+        return run.summarize();
+    }
+
+    /**
+     * Loads a class again in an own class loader.
+     *
+     * @param clazz Class to isolate.
+     * @return Freshly loaded class.
+     * @throws IOException Will be thrown if loading the class failed.
+     */
+    static Class<?> isolate(final Class<?> clazz) throws IOException {
+        try {
+            return IsolatingClassLoader.isolate(clazz);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Failed loading " + clazz.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Watchdog for programs running commands no test file was written for,
+     * which may therefore hang.
+     *
+     * @param config Configuration with the configured deadlines.
+     * @return Configured watchdog or one with a deadline of one second per
+     * command if none is configured.
+     */
+    static Watchdog watchdog(final SuiteConfig config) {
+        final Watchdog configured = config.getWatchdog();
+        return configured.getCommandDeadline() > Watchdog.NONE || configured.getFileDeadline() > Watchdog.NONE
+                ? configured : new Watchdog(DEFAULT_COMMAND_DEADLINE, Watchdog.NONE);
+    }
+
+    private static File fixture(final String argument) {
+        return new File(argument.replace('\\', File.separatorChar).replace('/', File.separatorChar));
+    }
+
+    /**
+     * State of one run shared by its threads.
+     */
+    private final class Run {
+        private final File dir;
+        private final CommandGrammar grammar;
+        private final FixtureShape shape;
+        private final List<File> samples;
+        private final List<String[]> argumentSets;
+        private final Watchdog watchdog;
+        private final String suffix;
+        private final long start = System.nanoTime();
+        private final AtomicInteger threads = new AtomicInteger();
+        private final AtomicLong claimed = new AtomicLong();
+        private final AtomicLong done = new AtomicLong();
+        private final AtomicLong sequences = new AtomicLong();
+        private final AtomicLong divergences = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong unconfirmed = new AtomicLong();
+        private final Map<String, Found> found = new TreeMap<>();
+        private long reportedAt = System.nanoTime();
+
+        Run(final File dir, final CommandGrammar grammar, final FixtureShape shape, final List<File> samples,
+            final List<String[]> argumentSets) {
+            this.dir = dir;
+            this.grammar = grammar;
+            this.shape = shape;
+            this.samples = samples;
+            this.argumentSets = argumentSets.isEmpty() ? Collections.singletonList(new String[0]) : argumentSets;
+            this.watchdog = watchdog(config);
+            final String sample = samples.isEmpty() ? "" : samples.get(0).getName();
+            this.suffix = sample.lastIndexOf('.') > 0 ? sample.substring(sample.lastIndexOf('.')) : ".fixture";
+        }
+
+        void work(final int worker) throws IOException, InterruptedException {
+            final Random random = new Random(seed + 0x9E3779B97F4A7C15L * worker);
+            final File fixture = new File(dir, "fixture-" + worker + suffix);
+            final File log = new File(dir, "fuzz-" + worker + ".log");
+            Class<?> tested = null;
+            Class<?> expected = null;
+            for (long sequence = 0; !Thread.currentThread().isInterrupted(); sequence++) {
+                final int count = 1 + random.nextInt(length);
+                if (claimed.getAndAdd(count) >= commands) {
+                    return;
+                }
+                final String[] template = argumentSets.get(random.nextInt(argumentSets.size()));
+                final String[] arguments = template.clone();
+                List<String> names = Collections.emptyList();
+                for (int i = 0; i < arguments.length; i++) {
+                    if (!fixture(arguments[i]).isFile()) {
+                        continue;
+                    }
+                    if (shape != null) {
+                        names = shape.generate(random, fixture);
+                        arguments[i] = fixture.getPath();
+                    } else {
+                        final File sample = samples.get(random.nextInt(samples.size()));
+                        names = FixtureShape.names(sample);
+                        arguments[i] = sample.getPath();
+                    }
+                }
+                final List<String> sequenceCommands = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    sequenceCommands.add(grammar.generate(random, names, shape));
+                }
+                if (tested == null || config.isIsolation()) {
+                    tested = isolate(config.getTestClass());
+                    expected = isolate(reference);
+                }
+                final TestFile test = ReferenceRecorder.expect(expected, arguments, sequenceCommands,
+                        REFERENCE_TIMEOUT);
+                sequences.incrementAndGet();
+                if (test == null) {
+                    skipped.incrementAndGet();
+                    tested = null;
+                    continue;
+                }
+                final FileResult result = check(tested, "fuzz-" + worker + "-" + sequence, test, log);
+                done.addAndGet(result.getCases());
+                if (!result.isPassed()) {
+                    divergences.incrementAndGet();
+                    diverged(test, result.getFailures().get(0), !config.isIsolation(), log);
+                    tested = null;
+                }
+                progress();
+            }
+        }
+
+        private FileResult check(final Class<?> tested, final String name, final TestFile test, final File log) {
+            return TestSuite.testFile(tested, name, test.cases(), log, watchdog);
+        }
+
+        /**
+         * Records a divergence and writes its sequence, if it is the first or
+         * shortest of its kind. Divergences found with classes used before
+         * are confirmed in fresh classes first, as they may depend on static
+         * state left by earlier sequences.
+         */
+        private void diverged(final TestFile test, final TestFailure failure, final boolean confirm,
+                              final File log) throws IOException, InterruptedException {
+            int cases = failure.getCaseNumber() > 0 ? Math.min(failure.getCaseNumber(), test.getInputs().size())
+                    : test.getInputs().size();
+            final String key = key(test, cases, failure);
+            synchronized (found) {
+                final Found previous = found.get(key);
+                if (previous != null && previous.cases <= cases) {
+                    previous.count++;
+                    return;
+                }
+            }
+            TestFile candidate = prefix(test, cases);
+            TestFailure confirmed = failure;
+            if (confirm) {
+                final TestFile fresh = ReferenceRecorder.expect(isolate(reference), candidate.getArguments(),
+                        candidate.getInputs(), REFERENCE_TIMEOUT);
+                final FileResult result = fresh != null
+                        ? check(isolate(config.getTestClass()), "fuzz-confirm", fresh, log) : null;
+                if (result == null || result.isPassed()) {
+                    unconfirmed.incrementAndGet();
+                    return;
+                }
+                confirmed = result.getFailures().get(0);
+                cases = confirmed.getCaseNumber() > 0 ? Math.min(confirmed.getCaseNumber(), fresh.getInputs().size())
+                        : fresh.getInputs().size();
+                candidate = prefix(fresh, cases);
+                if (!key(fresh, cases, confirmed).equals(key)) {
+                    unconfirmed.incrementAndGet();
+                    return;
+                }
+            }
+            synchronized (found) {
+                final Found previous = found.get(key);
+                if (previous != null && previous.cases <= cases) {
+                    previous.count++;
+                    return;
+                }
+                final String name = previous != null ? previous.name : DIR_NAME + "-" + (found.size() + 1);
+                final String[] arguments = candidate.getArguments().clone();
+                for (int i = 0; i < arguments.length; i++) {
+                    final File fixture = fixture(arguments[i]);
+                    if (fixture.isFile()) {
+                        final File copy = new File(dir, name + (arguments.length > 1 ? "-" + i : "") + suffix);
+                        Files.copy(fixture.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                        arguments[i] = copy.getPath();
+                    }
+                }
+                TestFileWriter.write(new TestFile(arguments, candidate.getInputs(), candidate.getExpectations(),
+                        null, 0), new File(dir, name + ".test"));
+                final Found current = new Found(name, cases, confirmed);
+                current.count = previous != null ? previous.count + 1 : 1;
+                found.put(key, current);
+                if (previous == null) {
+                    out.println(TestSuite.DEF_PREF + "FOUND " + name + ".test " + confirmed);
+                }
+            }
+        }
+
+        private String key(final TestFile test, final int cases, final TestFailure failure) {
+            final String input = cases > 0 ? test.getInputs().get(cases - 1) : "";
+            final int blank = input.indexOf(' ');
+            return (blank < 0 ? input : input.substring(0, blank)) + " "
+                    + (cases > 0 && test.getExpectations().get(cases - 1).equals("00err") ? "error " : "")
+                    + failure.getKind();
+        }
+
+        private TestFile prefix(final TestFile test, final int cases) {
+            return new TestFile(test.getArguments(), new ArrayList<>(test.getInputs().subList(0, cases)),
+                    new ArrayList<>(test.getExpectations().subList(0, cases)), null, 0);
+        }
+
+        private void progress() {
+            final long now = System.nanoTime();
+            synchronized (this) {
+                if (now - reportedAt < PROGRESS_INTERVAL) {
+                    return;
+                }
+                reportedAt = now;
+            }
+            final int kinds;
+            synchronized (found) {
+                kinds = found.size();
+            }
+            out.println(TestSuite.DEF_PREF + "## fuzz: " + done.get() + " commands, " + rate(now) + " commands/min, "
+                    + kinds + " kinds of divergences");
+        }
+
+        private long rate(final long now) {
+            return done.get() * TimeUnit.MINUTES.toNanos(1) / Math.max(1, now - start);
+        }
+
+        SuiteResult summarize() {
+            final List<FileResult> results = new ArrayList<>();
+            synchronized (found) {
+                for (final Found divergence : found.values()) {
+                    out.println(TestSuite.DEF_PREF + "FAILED " + divergence.name + ".test (" + divergence.count
+                            + "x, " + divergence.cases + " commands) " + divergence.failure);
+                    results.add(new FileResult(divergence.name + ".test", divergence.cases, divergence.cases - 1,
+                            0, Arrays.asList(divergence.failure)));
+                }
+            }
+            out.println(TestSuite.DEF_PREF + "## fuzz summary: " + done.get() + " commands in " + sequences.get()
+                    + " sequences, " + rate(System.nanoTime()) + " commands/min, "
+                    + (divergences.get() - unconfirmed.get()) + " diverged, " + results.size() + " kinds"
+                    + (skipped.get() > 0 ? ", " + skipped.get() + " skipped without reference output" : "")
+                    + (unconfirmed.get() > 0 ? ", " + unconfirmed.get() + " only diverging after earlier sequences"
+                    : ""));
+            return new SuiteResult(results);
+        }
+    }
+
+    /**
+     * Shortest sequence found for one kind of divergence.
+     */
+    private static final class Found {
+        private final String name;
+        private final int cases;
+        private final TestFailure failure;
+        private int count;
+
+        Found(final String name, final int cases, final TestFailure failure) {
+            this.name = name;
+            this.cases = cases;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Child-first ClassLoader defining its own copies of the classes in
+ * edu.kit.informatik, so static state of the tested program isn't shared
+ * between test files. Classes of the TestSuite itself are always loaded by
+ * the parent. Bytecode is read once and shared by all instances.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class IsolatingClassLoader extends ClassLoader {
+
+    private static final String ISOLATED_PREF = "edu.kit.informatik.";
+    private static final String SUITE_PREF = IsolatingClassLoader.class.getPackage().getName() + ".";
+
+    private static final byte[] MISSING = new byte[0];
+    private static final Map<String, byte[]> BYTECODE = new ConcurrentHashMap<>();
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    /**
+     * Initialises a new ClassLoader.
+     *
+     * @param parent Loader providing the bytecode and all not isolated classes.
+     */
+    public IsolatingClassLoader(final ClassLoader parent) {
+        super(parent);
+    }
+
+    /**
+     * Loads a class in a new isolated ClassLoader.
+     *
+     * @param clazz Class to load a fresh copy of.
+     * @return Fresh copy of the class.
+     * @throws ClassNotFoundException Will be thrown if the class couldn't be
+     *                                loaded.
+     */
+    public static Class<?> isolate(final Class<?> clazz) throws ClassNotFoundException {
+        return new IsolatingClassLoader(clazz.getClassLoader()).loadClass(clazz.getName());
+    }
+
+    /**
+     * Removes all cached bytecode, so changed classes will be read again.
+     */
+    public static void clearCache() {
+        BYTECODE.clear();
+    }
+
+    @Override
+    protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+        if (!name.startsWith(ISOLATED_PREF) || name.startsWith(SUITE_PREF)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> clazz = findLoadedClass(name);
+            if (clazz == null) {
+                final byte[] code = BYTECODE.computeIfAbsent(name, this::readBytecode);
+                if (code == MISSING) {
+                    return super.loadClass(name, resolve);
+                }
+                clazz = defineClass(name, code, 0, code.length);
+            }
+            if (resolve) {
+                resolveClass(clazz);
+            }
+            return clazz;
+        }
+    }
+
+    private byte[] readBytecode(final String name) {
+        try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+            if (in == null) {
+                return MISSING;
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            System.err.println(TestSuite.ERR_PREF + "Failed reading class " + name + ": " + e.getMessage());
+            return MISSING;
+        }
+    }
+}
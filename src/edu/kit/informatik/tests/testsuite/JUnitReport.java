@@ -0,0 +1,117 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes results in the JUnit XML format understood by CI servers. Every test
+ * file is a testsuite, every failed case a testcase with expected and actual
+ * output.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class JUnitReport {
+
+    private JUnitReport() {
+    }
+
+    /**
+     * Writes a report.
+     *
+     * @param results Results of the tested files.
+     * @param report  File to write the report to.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    public static void write(final List<FileResult> results, final File report) throws IOException {
+        int tests = 0;
+        int failures = 0;
+        long duration = 0;
+        for (final FileResult result : results) {
+            tests += Math.max(1, result.getCases());
+            failures += result.getFailures().size();
+            duration += result.getDuration();
+        }
+        try (Writer out = new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8))) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<testsuites name=\"TestSuite\" tests=\"" + tests + "\" failures=\"" + failures
+                    + "\" time=\"" + seconds(duration) + "\">\n");
+            for (final FileResult result : results) {
+                writeFile(out, result);
+            }
+            out.write("</testsuites>\n");
+        }
+    }
+
+    private static void writeFile(final Writer out, final FileResult result) throws IOException {
+        final String name = escape(result.getName());
+        final int tests = Math.max(1, result.getCases());
+        final int skipped = Math.max(0, result.getCases() - result.getPassedCases() - result.getFailures().size());
+        out.write("  <testsuite name=\"" + name + "\" tests=\"" + tests + "\" failures=\""
+                + result.getFailures().size() + "\" skipped=\"" + skipped + "\" time=\""
+                + seconds(result.getDuration()) + "\">\n");
+        if (result.isPassed()) {
+            out.write("    <testcase classname=\"" + name + "\" name=\"" + name + "\" time=\""
+                    + seconds(result.getDuration()) + "\"/>\n");
+        }
+        for (final TestFailure failure : result.getFailures()) {
+            String caseName = failure.getCaseNumber() > 0 ? "case " + failure.getCaseNumber() : result.getName();
+            if (failure.getInput() != null) {
+                caseName += ": " + failure.getInput();
+            }
+            out.write("    <testcase classname=\"" + name + "\" name=\"" + escape(caseName) + "\">\n");
+            out.write("      <failure message=\"" + escape(failure.getMessage()) + "\">");
+            if (failure.getExpected() != null) {
+                out.write(escape("expected: " + failure.getExpected() + "\n"));
+            }
+            if (failure.getActual() != null) {
+                out.write(escape("actual: " + failure.getActual() + "\n"));
+            }
+            out.write("</failure>\n");
+            out.write("    </testcase>\n");
+        }
+        out.write("  </testsuite>\n");
+    }
+
+    private static String seconds(final long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e9);
+    }
+
+    private static String escape(final String value) {
+        final StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    builder.append("&lt;");
+                    break;
+                case '>':
+                    builder.append("&gt;");
+                    break;
+                case '&':
+                    builder.append("&amp;");
+                    break;
+                case '"':
+                    builder.append("&quot;");
+                    break;
+                case '\'':
+                    builder.append("&apos;");
+                    break;
+                default:
+                    if (c >= 0x20 || c == '\n' || c == '\r' || c == '\t') {
+                        builder.append(c);
+                    }
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,226 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Histogram of latencies in nanoseconds with logarithmic buckets, each
+ * magnitude split into 16 linear sub buckets. Percentiles are exact to about
+ * 6%, memory is constant no matter how many values are recorded.
+ * Histograms can be stored sparsely and compared with a Mann-Whitney U test,
+ * latencies in the same bucket counting as ties.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    private final long[] counts = new long[64 << SUB_BITS];
+    private long count;
+    private long max;
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos Latency in nanoseconds.
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        counts[index(value)]++;
+        count++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Getter of the count of recorded latencies.
+     *
+     * @return Count of recorded latencies.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Getter of the highest recorded latency.
+     *
+     * @return Highest latency in nanoseconds.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Calculates a percentile.
+     *
+     * @param percent Percentile between 0 and 100.
+     * @return Upper bound of the bucket containing the percentile in
+     * nanoseconds, 0 if nothing was recorded.
+     */
+    public long percentile(final double percent) {
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percent / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Adds all latencies recorded by another histogram.
+     *
+     * @param other Histogram to add.
+     */
+    public void add(final LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Tests whether the latencies of this histogram are higher than those of
+     * another one with a one-sided Mann-Whitney U test in normal
+     * approximation, corrected for ties and continuity.
+     *
+     * @param baseline Histogram of the latencies compared with.
+     * @return Probability of seeing latencies this much higher if both were
+     * equally distributed, 1 if a histogram is empty.
+     */
+    public double slowerThan(final LatencyHistogram baseline) {
+        final double n1 = count;
+        final double n2 = baseline.count;
+        final double n = n1 + n2;
+        if (n1 == 0 || n2 == 0) {
+            return 1;
+        }
+        double u = 0;
+        double below = 0;
+        double ties = 0;
+        for (int i = 0; i < counts.length; i++) {
+            final double a = counts[i];
+            final double b = baseline.counts[i];
+            u += a * (below + b / 2);
+            below += b;
+            final double t = a + b;
+            ties += t * t * t - t;
+        }
+        final double variance = n1 * n2 / 12 * ((n + 1) - ties / (n * (n - 1)));
+        if (variance <= 0) {
+            return 1;
+        }
+        final double z = (u - n1 * n2 / 2 - 0.5) / Math.sqrt(variance);
+        return erfc(z / Math.sqrt(2)) / 2;
+    }
+
+    /**
+     * Writes the non-empty buckets of this histogram.
+     *
+     * @param out Output to write to.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+        int buckets = 0;
+        for (final long bucket : counts) {
+            if (bucket > 0) {
+                buckets++;
+            }
+        }
+        BinaryIO.writeVarInt(out, buckets);
+        int previous = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                BinaryIO.writeVarInt(out, i - previous);
+                BinaryIO.writeVarInt(out, counts[i]);
+                previous = i;
+            }
+        }
+        BinaryIO.writeVarInt(out, max);
+    }
+
+    /**
+     * Reads a histogram written with {@link #writeTo(DataOutput)}.
+     *
+     * @param in Input to read from.
+     * @return Read histogram.
+     * @throws IOException Will be thrown if reading failed.
+     */
+    public static LatencyHistogram readFrom(final DataInput in) throws IOException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final int buckets = (int) BinaryIO.readVarInt(in);
+        int index = 0;
+        for (int i = 0; i < buckets; i++) {
+            index += (int) BinaryIO.readVarInt(in);
+            if (index < 0 || index >= histogram.counts.length) {
+                throw new IOException("Bad histogram bucket " + index);
+            }
+            histogram.counts[index] = BinaryIO.readVarInt(in);
+            histogram.count += histogram.counts[index];
+        }
+        histogram.max = BinaryIO.readVarInt(in);
+        return histogram;
+    }
+
+    /**
+     * Formats nanoseconds with a fitting unit.
+     *
+     * @param nanos Duration in nanoseconds.
+     * @return Formatted duration, e.g. "1.25ms".
+     */
+    public static String format(final long nanos) {
+        if (nanos >= 1000000000L) {
+            return String.format(Locale.ROOT, "%.2fs", nanos / 1e9);
+        } else if (nanos >= 1000000L) {
+            return String.format(Locale.ROOT, "%.2fms", nanos / 1e6);
+        } else if (nanos >= 1000L) {
+            return String.format(Locale.ROOT, "%.1fus", nanos / 1e3);
+        }
+        return nanos + "ns";
+    }
+
+    private static int index(final long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_COUNT - 1);
+        return ((magnitude - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    private static long upperBound(final int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        final int shift = (index >>> SUB_BITS) - 1;
+        final long lower = (long) (SUB_COUNT + (index & (SUB_COUNT - 1))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * Complementary error function with a fractional error below 1.2e-7.
+     */
+    private static double erfc(final double x) {
+        final double t = 1 / (1 + 0.5 * Math.abs(x));
+        final double y = t * Math.exp(-x * x - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587 + t * (-0.82215223
+                + t * 0.17087277)))))))));
+        return x >= 0 ? y : 2 - y;
+    }
+
+    @Override
+    public String toString() {
+        return "n=" + count + " p50=" + format(percentile(50)) + " p99=" + format(percentile(99))
+                + " max=" + format(max);
+    }
+}
@@ -0,0 +1,50 @@
+package edu.kit.informatik.tests.testsuite;
+
+/**
+ * Memory budgets of a test file, set with '@alloc' and '@heap' in front of
+ * its cases.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class MemoryBudget {
+
+    /**
+     * Budget without limits.
+     */
+    public static final MemoryBudget NONE = new MemoryBudget(0, 0);
+
+    private final long allocation;
+    private final long heap;
+
+    /**
+     * Initialises new budgets.
+     *
+     * @param allocation Bytes the program may allocate while testing the
+     *                   file, 0 for no limit.
+     * @param heap       Bytes the heap may use at most while testing the
+     *                   file, 0 for no limit.
+     */
+    public MemoryBudget(final long allocation, final long heap) {
+        this.allocation = allocation;
+        this.heap = heap;
+    }
+
+    /**
+     * Getter of the allocation budget.
+     *
+     * @return Bytes the program may allocate, 0 for no limit.
+     */
+    public long getAllocation() {
+        return allocation;
+    }
+
+    /**
+     * Getter of the heap budget.
+     *
+     * @return Bytes the heap may use at most, 0 for no limit.
+     */
+    public long getHeap() {
+        return heap;
+    }
+}
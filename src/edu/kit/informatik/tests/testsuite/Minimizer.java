@@ -0,0 +1,290 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reduces a failing .test-File to the fewest commands still failing in the
+ * same way, using delta debugging (ddmin). The failing case is kept, the
+ * commands after it are dropped and the commands in front of it are removed
+ * in ever smaller chunks. A candidate reproduces the failure if its last case,
+ * the failing one, fails with the same kind of failure while all cases in
+ * front of it pass. The candidates of a round run at once on all threads,
+ * each in freshly loaded classes.
+ * <p>
+ * The expected outputs are taken from the original file. As removing commands
+ * may change the correct output of the failing case, they can be taken from a
+ * reference implementation instead, which runs every candidate first.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class Minimizer {
+
+    /**
+     * Name of the directory in the logs holding the minimized files.
+     */
+    public static final String DIR_NAME = "minimized";
+
+    private static final long REFERENCE_TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+
+    private final SuiteConfig config;
+    private final Class<?> reference;
+    private final PrintStream out;
+
+    /**
+     * Initialises a minimizer running the tested class of a configuration.
+     *
+     * @param config    Configuration providing the tested class, parallelism
+     *                  and deadlines.
+     * @param reference Class whose outputs are expected or null to expect the
+     *                  outputs of the original file.
+     */
+    public Minimizer(final SuiteConfig config, final Class<?> reference) {
+        this.config = config;
+        this.reference = reference;
+        this.out = config.getOut();
+    }
+
+    /**
+     * Minimizes a failing file and writes the result with the same name into
+     * the "minimized" directory of the logs.
+     *
+     * @param testFile Failing .test-File.
+     * @return Written minimal .test-File.
+     * @throws IOException Will be thrown if the file couldn't be read or
+     *                     written, doesn't fail or fails without belonging to
+     *                     a case.
+     */
+    public File minimize(final File testFile) throws IOException {
+        final File dir = new File(config.getLogDir(), DIR_NAME);
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Failed to create minimize-directory " + dir);
+        }
+        final TestFile original;
+        try {
+            original = TestFileParser.load(testFile, new File(config.getLogDir(), "compiled"));
+        } catch (ParseException e) {
+            throw new IOException("Bad formatted file: " + testFile.getName() + " (" + e.getMessage() + ")", e);
+        }
+        StreamRouter.install();
+        final Run run = new Run(dir, original);
+        final ExecutorService executor = Executors.newFixedThreadPool(config.getParallelism(), runnable -> {
+            final Thread thread = new Thread(runnable, "TestSuite-minimize-" + run.threads.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        });
+        try {
+            final TestFile minimal = run.minimize(executor, testFile.getName());
+            final File target = new File(dir, testFile.getName());
+            TestFileWriter.write(minimal, target);
+            out.println(TestSuite.DEF_PREF + "## minimize summary: " + run.target + " -> "
+                    + minimal.getInputs().size() + " cases in " + run.runs.get() + " runs, "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - run.start) + "ms, written to " + target);
+            return target;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while minimizing!", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * State of one minimization shared by its threads.
+     */
+    private final class Run {
+        private final File dir;
+        private final TestFile original;
+        private final Watchdog watchdog;
+        private final long start = System.nanoTime();
+        private final AtomicInteger threads = new AtomicInteger();
+        private final AtomicInteger runs = new AtomicInteger();
+        private final Map<String, TestFile> tried = new HashMap<>();
+        private int target;
+        private String kind;
+
+        Run(final File dir, final TestFile original) {
+            this.dir = dir;
+            this.original = original;
+            this.watchdog = Fuzzer.watchdog(config);
+        }
+
+        /**
+         * Finds the failure of the original file and removes commands in front
+         * of it until removing any single one of the remaining makes it
+         * vanish.
+         */
+        TestFile minimize(final ExecutorService executor, final String name)
+                throws IOException, InterruptedException {
+            final int size = original.getInputs().size();
+            final FileResult result = TestSuite.testFile(Fuzzer.isolate(config.getTestClass()), name,
+                    original.cases(), log(), watchdog);
+            runs.incrementAndGet();
+            if (result.isPassed()) {
+                throw new IOException(name + " doesn't fail");
+            }
+            final TestFailure failure = result.getFailures().get(0);
+            if (failure.getCaseNumber() <= 0 || size == 0) {
+                throw new IOException(name + " fails without a failing case: " + failure.getMessage());
+            }
+            target = Math.min(failure.getCaseNumber(), size);
+            kind = failure.getKind();
+            out.println(TestSuite.DEF_PREF + "## minimize " + name + ": " + failure);
+            List<Integer> current = new ArrayList<>();
+            for (int i = 0; i < target - 1; i++) {
+                current.add(i);
+            }
+            if (!reproduces(executor, current)) {
+                throw new IOException(name + " doesn't fail in the same way without the cases after case "
+                        + target);
+            }
+            if (!current.isEmpty() && reproduces(executor, new ArrayList<>())) {
+                current = new ArrayList<>();
+            }
+            int chunks = 2;
+            while (current.size() >= 2) {
+                final List<List<Integer>> candidates = new ArrayList<>();
+                final int length = current.size();
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    candidates.add(new ArrayList<>(current.subList(chunk * length / chunks,
+                            (chunk + 1) * length / chunks)));
+                }
+                if (chunks > 2) {
+                    for (int chunk = 0; chunk < chunks; chunk++) {
+                        final List<Integer> complement = new ArrayList<>(current.subList(0, chunk * length / chunks));
+                        complement.addAll(current.subList((chunk + 1) * length / chunks, length));
+                        candidates.add(complement);
+                    }
+                }
+                final int found = first(executor, candidates);
+                if (found >= 0 && found < chunks) {
+                    current = candidates.get(found);
+                    chunks = 2;
+                } else if (found >= 0) {
+                    current = candidates.get(found);
+                    chunks = Math.max(chunks - 1, 2);
+                } else if (chunks < length) {
+                    chunks = Math.min(chunks * 2, length);
+                } else {
+                    break;
+                }
+                out.println(TestSuite.DEF_PREF + "## minimize: " + (current.size() + 1) + " cases, "
+                        + runs.get() + " runs");
+            }
+            return tried.get(current.toString());
+        }
+
+        private boolean reproduces(final ExecutorService executor, final List<Integer> kept)
+                throws IOException, InterruptedException {
+            final List<List<Integer>> candidates = new ArrayList<>();
+            candidates.add(kept);
+            return first(executor, candidates) == 0;
+        }
+
+        /**
+         * Runs the candidates not run before at once.
+         *
+         * @return Index of the first candidate reproducing the failure or -1
+         * if none does.
+         */
+        private int first(final ExecutorService executor, final List<List<Integer>> candidates)
+                throws IOException, InterruptedException {
+            final List<Future<TestFile>> futures = new ArrayList<>();
+            for (final List<Integer> kept : candidates) {
+                futures.add(tried.containsKey(kept.toString()) ? null : executor.submit(() -> check(kept)));
+            }
+            int first = -1;
+            for (int i = 0; i < futures.size(); i++) {
+                final String key = candidates.get(i).toString();
+                if (futures.get(i) != null) {
+                    try {
+                        tried.put(key, futures.get(i).get());
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof IOException) {
+                            throw (IOException) e.getCause();
+                        }
+                        throw new IOException("Something went wrong while minimizing: " + e.getCause(), e.getCause());
+                    }
+                }
+                if (first < 0 && tried.get(key) != null) {
+                    first = i;
+                }
+            }
+            return first;
+        }
+
+        /**
+         * Tests one candidate in freshly loaded classes.
+         *
+         * @return Tested file if all cases in front of the failing case pass
+         * and it fails in the same way, null otherwise.
+         */
+        private TestFile check(final List<Integer> kept) throws IOException, InterruptedException {
+            TestFile candidate = candidate(kept);
+            if (reference != null) {
+                candidate = ReferenceRecorder.expect(Fuzzer.isolate(reference), candidate.getArguments(),
+                        candidate.getInputs(), REFERENCE_TIMEOUT);
+                if (candidate == null || candidate.getInputs().size() <= kept.size()) {
+                    return null;
+                }
+                candidate = new TestFile(candidate.getArguments(), candidate.getInputs(),
+                        candidate.getExpectations(), budgets(kept), original.getFileBudget(),
+                        original.getMemoryBudget());
+            }
+            final FileResult result = TestSuite.testFile(Fuzzer.isolate(config.getTestClass()), DIR_NAME,
+                    candidate.cases(), log(), watchdog);
+            runs.incrementAndGet();
+            if (result.isPassed()) {
+                return null;
+            }
+            final TestFailure failure = result.getFailures().get(0);
+            return failure.getCaseNumber() == kept.size() + 1 && failure.getKind().equals(kind) ? candidate : null;
+        }
+
+        /**
+         * Creates the file of a candidate, the kept cases followed by the
+         * failing one.
+         */
+        private TestFile candidate(final List<Integer> kept) {
+            final List<String> inputs = new ArrayList<>();
+            final List<String> expectations = new ArrayList<>();
+            for (final int index : kept) {
+                inputs.add(original.getInputs().get(index));
+                expectations.add(original.getExpectations().get(index));
+            }
+            inputs.add(original.getInputs().get(target - 1));
+            expectations.add(original.getExpectations().get(target - 1));
+            return new TestFile(original.getArguments(), inputs, expectations, budgets(kept),
+                    original.getFileBudget(), original.getMemoryBudget());
+        }
+
+        private long[] budgets(final List<Integer> kept) {
+            if (original.getBudgets() == null) {
+                return null;
+            }
+            final long[] budgets = new long[kept.size() + 1];
+            for (int i = 0; i < kept.size(); i++) {
+                budgets[i] = original.getBudgets()[kept.get(i)];
+            }
+            budgets[kept.size()] = original.getBudgets()[target - 1];
+            return budgets;
+        }
+
+        private File log() {
+            return new File(dir, Thread.currentThread().getName() + ".log");
+        }
+    }
+}
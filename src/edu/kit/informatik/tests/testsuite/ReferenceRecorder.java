@@ -0,0 +1,184 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a reference implementation on a sequence of commands and records the
+ * output of every command in memory. Like {@link ExpectionInputStream} only
+ * one command is served per read, so the output between two reads belongs to
+ * the command read first.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+final class ReferenceRecorder {
+
+    private static final byte[] QUIT = ("quit" + System.lineSeparator()).getBytes(Charset.defaultCharset());
+
+    private ReferenceRecorder() {
+    }
+
+    /**
+     * Runs the main of a reference class. The recording stops at the first
+     * command without output, at a command the program threw at and at the
+     * end of the program, as the outputs after it can't be expected.
+     *
+     * @param reference Class of the reference implementation.
+     * @param arguments Command line arguments.
+     * @param commands  Commands to input, followed by "quit".
+     * @param timeout   Longest time in nanoseconds the program may take.
+     * @return Outputs without trailing line separator, one for each of the
+     * first commands, or null if the program timed out.
+     * @throws NoSuchMethodException Will be thrown if the class has no main.
+     * @throws InterruptedException  Will be thrown if interrupted while
+     *                               waiting for the program.
+     */
+    static List<String> record(final Class<?> reference, final String[] arguments, final List<String> commands,
+                               final long timeout) throws NoSuchMethodException, InterruptedException {
+        final Method main = reference.getMethod("main", String[].class);
+        final Feed feed = new Feed(commands);
+        final boolean[] threw = new boolean[1];
+        StreamRouter.bind(feed, new PrintStream(feed.output));
+        final ThreadGroup group = Watchdog.group("TestSuite-reference");
+        final Thread program = new Thread(group, () -> {
+            try {
+                main.invoke(null, (Object) arguments);
+            } catch (InvocationTargetException | IllegalAccessException e) {
+                threw[0] = true;
+            }
+        }, "TestSuite-reference-" + reference.getSimpleName());
+        program.setDaemon(true);
+        program.setContextClassLoader(reference.getClassLoader());
+        try {
+            program.start();
+            program.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout)));
+        } finally {
+            StreamRouter.unbind();
+        }
+        if (program.isAlive()) {
+            Watchdog.stop(group);
+            return null;
+        }
+        return feed.outputs(threw[0]);
+    }
+
+    /**
+     * Runs the main of a reference class and creates a test file expecting
+     * its outputs. Error messages are expected as '00err'.
+     *
+     * @param reference Class of the reference implementation.
+     * @param arguments Command line arguments.
+     * @param commands  Commands to input.
+     * @param timeout   Longest time in nanoseconds the program may take.
+     * @return File with the first commands the reference answered or null if
+     * it answered none.
+     * @throws IOException          Will be thrown if the class has no main.
+     * @throws InterruptedException Will be thrown if interrupted while
+     *                              waiting for the program.
+     */
+    static TestFile expect(final Class<?> reference, final String[] arguments, final List<String> commands,
+                           final long timeout) throws IOException, InterruptedException {
+        final List<String> outputs;
+        try {
+            outputs = record(reference, arguments, commands, timeout);
+        } catch (NoSuchMethodException e) {
+            throw new IOException("Reference has no main: " + e.getMessage(), e);
+        }
+        final List<String> expectations = new ArrayList<>();
+        for (int i = 0; outputs != null && i < outputs.size(); i++) {
+            final String expectation = TestFileWriter.expectation(outputs.get(i));
+            if (expectation == null) {
+                break;
+            }
+            expectations.add(expectation);
+        }
+        if (expectations.isEmpty()) {
+            return null;
+        }
+        return new TestFile(arguments, new ArrayList<>(commands.subList(0, expectations.size())), expectations,
+                null, 0);
+    }
+
+    /**
+     * Input serving one command per read and marking where the output of each
+     * command starts.
+     */
+    private static final class Feed extends InputStream {
+        private final byte[][] commands;
+        private final int[] marks;
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private int index;
+        private int position;
+
+        Feed(final List<String> commands) {
+            this.commands = new byte[commands.size() + 1][];
+            for (int i = 0; i < commands.size(); i++) {
+                this.commands[i] = (commands.get(i) + System.lineSeparator()).getBytes(Charset.defaultCharset());
+            }
+            this.commands[commands.size()] = QUIT;
+            this.marks = new int[this.commands.length + 1];
+        }
+
+        @Override
+        public synchronized int read() {
+            final byte[] single = new byte[1];
+            return read(single, 0, 1) == 1 ? single[0] & 0xFF : -1;
+        }
+
+        @Override
+        public synchronized int read(final byte[] b, final int off, final int len) {
+            if (index == commands.length) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (position == 0) {
+                marks[index] = output.size();
+            }
+            final byte[] command = commands[index];
+            final int count = Math.min(len, command.length - position);
+            System.arraycopy(command, position, b, off, count);
+            position += count;
+            if (position == command.length) {
+                index++;
+                position = 0;
+            }
+            return count;
+        }
+
+        @Override
+        public synchronized int available() {
+            return position > 0 ? commands[index].length - position : 0;
+        }
+
+        synchronized List<String> outputs(final boolean threw) {
+            final byte[] bytes = output.toByteArray();
+            final byte[] separator = Expectation.LINE_SEPARATOR;
+            final int started = position > 0 ? index + 1 : index;
+            marks[started] = bytes.length;
+            final int answered = threw ? started - 1 : started;
+            final List<String> outputs = new ArrayList<>();
+            for (int i = 0; i < Math.min(answered, commands.length - 1); i++) {
+                int end = marks[i + 1];
+                if (end == marks[i]) {
+                    break;
+                }
+                if (Expectation.endsWith(bytes, marks[i], end - marks[i], separator)) {
+                    end -= separator.length;
+                }
+                outputs.add(new String(bytes, marks[i], end - marks[i], Charset.defaultCharset()));
+            }
+            return outputs;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the resources a program uses while one file is tested. Allocations
+ * of the program thread are read from the thread's allocation counter, which
+ * costs a few nanoseconds per command, and summed up per command word. Garbage collections and the peak heap
+ * are read from the JVM when the file starts and ends; the peaks of the heap
+ * pools are only reset while no other file is measured.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class ResourceMonitor {
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+    private static final List<MemoryPoolMXBean> HEAP = heapPools();
+    private static final Object LOCK = new Object();
+    private static int active;
+
+    private long gcCountStart;
+    private long gcTimeStart;
+    private long programId = -1;
+    private long programStart = -1;
+    private long programAllocated = -1;
+    private long commandStart = -1;
+    private long maxCommand = -1;
+    private int maxCommandCase;
+    private boolean started;
+    private final CommandAllocations commandAllocations = new CommandAllocations();
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter;
+            }
+        }
+        return null;
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        final List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    /**
+     * Starts measuring the JVM wide resources.
+     */
+    public void start() {
+        synchronized (LOCK) {
+            if (active++ == 0) {
+                for (final MemoryPoolMXBean pool : HEAP) {
+                    pool.resetPeakUsage();
+                }
+            }
+        }
+        started = true;
+        long count = 0;
+        long time = 0;
+        for (final GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        gcCountStart = count;
+        gcTimeStart = time;
+    }
+
+    /**
+     * Marks the calling thread as thread of the program. Has to be called by
+     * the program thread before main.
+     */
+    public synchronized void programStarted() {
+        programId = Thread.currentThread().getId();
+        programStart = allocated(programId);
+    }
+
+    /**
+     * Marks the end of main. Has to be called by the program thread.
+     */
+    public synchronized void programEnded() {
+        programAllocated = allocatedByProgram();
+    }
+
+    /**
+     * Records that the program read a command completely.
+     */
+    public synchronized void commandServed() {
+        commandStart = allocatedByProgram();
+    }
+
+    /**
+     * Records that the output of a command matched. May be called by another
+     * thread than the program thread once the program ended.
+     *
+     * @param command    Encoded command or null if unknown.
+     * @param caseNumber Number of the case starting with 1.
+     * @return Bytes allocated by the program so far, -1 if unknown.
+     */
+    public synchronized long commandAnswered(final byte[] command, final int caseNumber) {
+        final long allocated = programAllocated >= 0 ? programAllocated : allocatedByProgram();
+        if (commandStart >= 0 && allocated >= 0) {
+            final long used = allocated - commandStart;
+            if (used > maxCommand) {
+                maxCommand = used;
+                maxCommandCase = caseNumber;
+            }
+            if (command != null) {
+                commandAllocations.record(command, caseNumber, used);
+            }
+        }
+        return allocated;
+    }
+
+    /**
+     * Getter of the allocations per command word.
+     *
+     * @return Bytes allocated by the commands recorded so far by their first
+     * word.
+     */
+    public synchronized CommandAllocations getCommandAllocations() {
+        return commandAllocations;
+    }
+
+    /**
+     * Stops measuring. The program thread may still run, if it missed a
+     * deadline.
+     *
+     * @return Resources used since {@link #start()}.
+     */
+    public ResourceUsage finish() {
+        final long allocated;
+        synchronized (this) {
+            allocated = programAllocated >= 0 ? programAllocated : allocatedByProgram();
+        }
+        long count = 0;
+        long time = 0;
+        for (final GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        long peak = HEAP.isEmpty() ? -1 : 0;
+        for (final MemoryPoolMXBean pool : HEAP) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        if (started) {
+            started = false;
+            synchronized (LOCK) {
+                active--;
+            }
+        }
+        return new ResourceUsage(allocated, maxCommand, maxCommandCase, count - gcCountStart,
+                TimeUnit.MILLISECONDS.toNanos(time - gcTimeStart), peak);
+    }
+
+    private long allocatedByProgram() {
+        if (programStart < 0) {
+            return -1;
+        }
+        final long now = allocated(programId);
+        return now >= 0 ? now - programStart : -1;
+    }
+
+    private static long allocated(final long threadId) {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(threadId) : -1;
+    }
+}
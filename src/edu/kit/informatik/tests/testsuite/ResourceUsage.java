@@ -0,0 +1,176 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Resources used while testing one file. Allocations are counted for the
+ * thread running the main of the program only. Garbage collections and the
+ * peak heap are measured for the whole JVM, so they are exact only if one
+ * file is tested at a time per JVM, e.g. with Fork=true.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class ResourceUsage {
+
+    /**
+     * Usage of a file which wasn't measured.
+     */
+    public static final ResourceUsage NONE = new ResourceUsage(-1, -1, 0, 0, 0, -1);
+
+    private final long allocated;
+    private final long maxCommandAllocated;
+    private final int maxCommandCase;
+    private final long gcCount;
+    private final long gcPause;
+    private final long peakHeap;
+
+    /**
+     * Initialises a new usage.
+     *
+     * @param allocated           Bytes allocated by the program, -1 if
+     *                            unknown.
+     * @param maxCommandAllocated Most bytes allocated by one command, -1 if
+     *                            unknown.
+     * @param maxCommandCase      Number of the case allocating most, 0 if
+     *                            unknown.
+     * @param gcCount             Count of garbage collections.
+     * @param gcPause             Time spent in garbage collections in
+     *                            nanoseconds.
+     * @param peakHeap            Most bytes used by the heap, -1 if unknown.
+     */
+    public ResourceUsage(final long allocated, final long maxCommandAllocated, final int maxCommandCase,
+                         final long gcCount, final long gcPause, final long peakHeap) {
+        this.allocated = allocated;
+        this.maxCommandAllocated = maxCommandAllocated;
+        this.maxCommandCase = maxCommandCase;
+        this.gcCount = gcCount;
+        this.gcPause = gcPause;
+        this.peakHeap = peakHeap;
+    }
+
+    /**
+     * Getter of the allocated bytes.
+     *
+     * @return Bytes allocated by the program, -1 if unknown.
+     */
+    public long getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * Getter of the allocation of the most allocating command.
+     *
+     * @return Most bytes allocated by one command, -1 if unknown.
+     */
+    public long getMaxCommandAllocated() {
+        return maxCommandAllocated;
+    }
+
+    /**
+     * Getter of the most allocating case.
+     *
+     * @return Number of the case allocating most starting with 1, 0 if
+     * unknown.
+     */
+    public int getMaxCommandCase() {
+        return maxCommandCase;
+    }
+
+    /**
+     * Getter of the garbage collection count.
+     *
+     * @return Count of garbage collections.
+     */
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * Getter of the garbage collection time.
+     *
+     * @return Time spent in garbage collections in nanoseconds.
+     */
+    public long getGcPause() {
+        return gcPause;
+    }
+
+    /**
+     * Getter of the peak heap.
+     *
+     * @return Most bytes used by the heap, -1 if unknown.
+     */
+    public long getPeakHeap() {
+        return peakHeap;
+    }
+
+    /**
+     * Getter of the measured state.
+     *
+     * @return true, if any resource was measured.
+     */
+    public boolean isMeasured() {
+        return allocated >= 0 || peakHeap >= 0;
+    }
+
+    /**
+     * Writes this usage in binary form.
+     *
+     * @param out Output to write to.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+        BinaryIO.writeVarInt(out, allocated + 1);
+        BinaryIO.writeVarInt(out, maxCommandAllocated + 1);
+        BinaryIO.writeVarInt(out, maxCommandCase);
+        BinaryIO.writeVarInt(out, gcCount);
+        BinaryIO.writeVarInt(out, gcPause);
+        BinaryIO.writeVarInt(out, peakHeap + 1);
+    }
+
+    /**
+     * Reads a usage written with {@link #writeTo(DataOutput)}.
+     *
+     * @param in Input to read from.
+     * @return Read usage.
+     * @throws IOException Will be thrown if reading failed.
+     */
+    public static ResourceUsage readFrom(final DataInput in) throws IOException {
+        return new ResourceUsage(BinaryIO.readVarInt(in) - 1, BinaryIO.readVarInt(in) - 1,
+                (int) BinaryIO.readVarInt(in), BinaryIO.readVarInt(in), BinaryIO.readVarInt(in),
+                BinaryIO.readVarInt(in) - 1);
+    }
+
+    /**
+     * Formats a count of bytes human readable.
+     *
+     * @param bytes Count of bytes.
+     * @return Bytes with unit, e.g. "1.50MB".
+     */
+    public static String format(final long bytes) {
+        if (bytes < 0) {
+            return "?";
+        } else if (bytes >= 1L << 30) {
+            return String.format(Locale.ROOT, "%.2fGB", bytes / (double) (1L << 30));
+        } else if (bytes >= 1L << 20) {
+            return String.format(Locale.ROOT, "%.2fMB", bytes / (double) (1L << 20));
+        } else if (bytes >= 1L << 10) {
+            return String.format(Locale.ROOT, "%.1fKB", bytes / (double) (1L << 10));
+        }
+        return bytes + "B";
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("allocated ").append(format(allocated));
+        if (maxCommandCase > 0) {
+            builder.append(" (max ").append(format(maxCommandAllocated)).append(" by case ")
+                    .append(maxCommandCase).append(')');
+        }
+        return builder.append(", gc ").append(gcCount).append("x ").append(LatencyHistogram.format(gcPause))
+                .append(", peak heap ").append(format(peakHeap)).toString();
+    }
+}
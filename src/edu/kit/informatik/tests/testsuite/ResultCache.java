@@ -0,0 +1,278 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results of previous runs keyed by a hash of the test file, the fixture files
+ * named in its command line arguments and the bytecode of the tested program.
+ * Files which passed with an unchanged key don't have to be tested again.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class ResultCache {
+
+    private static final int MAGIC = 0x54535243;
+    private static final int VERSION = 3;
+    private static final String PROGRAM_DIR = "edu" + File.separator + "kit" + File.separator + "informatik";
+    private static final String SUITE_DIR = PROGRAM_DIR + File.separator + "tests" + File.separator + "testsuite";
+
+    private final File file;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Initialises a cache and loads the results stored in file.
+     *
+     * @param file File the results are stored in.
+     */
+    public ResultCache(final File file) {
+        this.file = file;
+        if (file.isFile()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                    final int count = in.readInt();
+                    for (int i = 0; i < count; i++) {
+                        final String key = BinaryIO.readString(in);
+                        final FileResult result = FileResult.readFrom(in);
+                        entries.put(result.getName(), new Entry(key, result));
+                    }
+                }
+            } catch (IOException e) {
+                entries.clear();
+                System.err.println(TestSuite.ERR_PREF + "Ignoring broken result cache: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Hashes the bytecode of the tested program. All classes in
+     * edu.kit.informatik next to the class, except the TestSuite, are
+     * included. If the class was loaded from a jar, the jar is hashed.
+     *
+     * @param clazz Class to be tested.
+     * @return Hash of the program.
+     * @throws IOException Will be thrown if reading the bytecode failed.
+     */
+    public static String programHash(final Class<?> clazz) throws IOException {
+        final MessageDigest digest = sha256();
+        digest.update(clazz.getName().getBytes(StandardCharsets.UTF_8));
+        final File location = location(clazz);
+        if (location != null && location.isDirectory()) {
+            final List<File> classes = new ArrayList<>();
+            collectClasses(new File(location, PROGRAM_DIR), classes);
+            final int prefix = location.getAbsolutePath().length();
+            classes.sort((a, b) -> a.getPath().compareTo(b.getPath()));
+            for (final File c : classes) {
+                digest.update(c.getAbsolutePath().substring(prefix).getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(c.toPath()));
+            }
+        } else if (location != null && location.isFile()) {
+            digest.update(Files.readAllBytes(location.toPath()));
+        } else {
+            try (InputStream in = clazz.getResourceAsStream(clazz.getSimpleName() + ".class")) {
+                if (in == null) {
+                    throw new IOException("Bytecode of " + clazz.getName() + " not found!");
+                }
+                update(digest, in);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * Locates the directory holding the bytecode of the tested program.
+     *
+     * @param clazz Class to be tested.
+     * @return Directory of the package edu.kit.informatik or null if the
+     * class wasn't loaded from a directory.
+     */
+    public static File programDirectory(final Class<?> clazz) {
+        final File location = location(clazz);
+        return location != null && location.isDirectory() ? new File(location, PROGRAM_DIR) : null;
+    }
+
+    /**
+     * Checks if a directory contains classes of the TestSuite instead of the
+     * tested program.
+     *
+     * @param dir Directory to check.
+     * @return true, if dir is the package of the TestSuite.
+     */
+    static boolean isSuiteDirectory(final File dir) {
+        return dir.getPath().endsWith(SUITE_DIR);
+    }
+
+    private static File location(final Class<?> clazz) {
+        final CodeSource source = clazz.getProtectionDomain().getCodeSource();
+        if (source != null && source.getLocation() != null) {
+            try {
+                return new File(source.getLocation().toURI());
+            } catch (URISyntaxException | IllegalArgumentException ignored) {
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Calculates the key of a test file.
+     *
+     * @param testFile    .test-File.
+     * @param arguments   Command line arguments of the file or null.
+     * @param programHash Hash of the tested program.
+     * @return Key of the file.
+     * @throws IOException Will be thrown if reading a file failed.
+     */
+    public static String key(final File testFile, final String[] arguments, final String programHash)
+            throws IOException {
+        final MessageDigest digest = sha256();
+        digest.update(programHash.getBytes(StandardCharsets.UTF_8));
+        try (InputStream in = new FileInputStream(testFile)) {
+            update(digest, in);
+        }
+        if (arguments != null) {
+            for (final String argument : arguments) {
+                final File fixture = fixture(argument);
+                if (fixture != null) {
+                    digest.update(argument.getBytes(StandardCharsets.UTF_8));
+                    digest.update(Files.readAllBytes(fixture.toPath()));
+                }
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * Resolves a command line argument to the file it names.
+     *
+     * @param argument Command line argument of a .test-File.
+     * @return Named file or null if the argument doesn't name an existing file.
+     */
+    public static File fixture(final String argument) {
+        File fixture = new File(argument);
+        if (!fixture.isFile()) {
+            fixture = new File(argument.replace('\\', File.separatorChar).replace('/', File.separatorChar));
+        }
+        return fixture.isFile() ? fixture : null;
+    }
+
+    /**
+     * Looks for a passed result with the same key.
+     *
+     * @param name Name of the test file.
+     * @param key  Current key of the file.
+     * @return Stored result or null if the file has to be tested.
+     */
+    public synchronized FileResult lookup(final String name, final String key) {
+        final Entry entry = entries.get(name);
+        return entry != null && entry.key.equals(key) && entry.result.isPassed() ? entry.result : null;
+    }
+
+    /**
+     * Stores a result.
+     *
+     * @param key    Key of the file when it was tested.
+     * @param result Result of the file.
+     */
+    public synchronized void store(final String key, final FileResult result) {
+        entries.put(result.getName(), new Entry(key, result));
+    }
+
+    /**
+     * Writes all results to the file of this cache. The file is replaced at
+     * once, so an interrupted or concurrent run never leaves half of it.
+     *
+     * @throws IOException Will be thrown if writing failed.
+     */
+    public synchronized void save() throws IOException {
+        final File dir = file.getAbsoluteFile().getParentFile();
+        final File temp = File.createTempFile(file.getName(), ".tmp", dir);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (final Entry entry : entries.values()) {
+                BinaryIO.writeString(out, entry.key);
+                entry.result.writeTo(out);
+            }
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void collectClasses(final File dir, final List<File> classes) {
+        final File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (final File child : children) {
+            if (child.isDirectory()) {
+                if (!isSuiteDirectory(child)) {
+                    collectClasses(child, classes);
+                }
+            } else if (child.getName().endsWith(".class")) {
+                classes.add(child);
+            }
+        }
+    }
+
+    private static void update(final MessageDigest digest, final InputStream in) throws IOException {
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(final byte[] bytes) {
+        final StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Stored result with the key it was tested with.
+     */
+    private static final class Entry {
+        private final String key;
+        private final FileResult result;
+
+        Entry(final String key, final FileResult result) {
+            this.key = key;
+            this.result = result;
+        }
+    }
+}
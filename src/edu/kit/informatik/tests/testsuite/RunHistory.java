@@ -0,0 +1,401 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Append-only history of runs. Every run appends one record holding its time,
+ * duration and the results of its files, including their failures and the
+ * latencies of their commands by command word. Records are written at once
+ * under a file lock, released when the file is closed, so runs of several
+ * JVMs can share a history; a record cut off by a crash is dropped by the
+ * next run.
+ * <p>
+ * A run is compared with the runs before it by merging their latencies per
+ * file and per command word and testing with a Mann-Whitney U test whether
+ * the latencies got higher. A slowdown is reported only if it is significant
+ * and the median got noticeably higher than in every earlier run, as with
+ * thousands of commands even the differences between unchanged runs are
+ * significant.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class RunHistory {
+
+    /**
+     * Count of earlier runs a run is compared with by default.
+     */
+    public static final int DEFAULT_WINDOW = 5;
+
+    private static final int MAGIC = 0x54534849;
+    private static final int VERSION = 1;
+    private static final double ALPHA = 0.001;
+    private static final double MIN_SLOWDOWN = 0.1;
+    private static final int MIN_SAMPLES = 20;
+    private static final int MIN_RUNS = 3;
+
+    private final File file;
+
+    /**
+     * Initialises a history stored in a file.
+     *
+     * @param file File the runs are appended to.
+     */
+    public RunHistory(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Appends a run. A file written by another version is replaced, a
+     * record cut off at the end of the file is dropped.
+     *
+     * @param results  Results of the files tested by the run.
+     * @param duration Duration of the run in nanoseconds.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    public void append(final Collection<FileResult> results, final long duration) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream record = new DataOutputStream(bytes);
+        BinaryIO.writeVarInt(record, System.currentTimeMillis());
+        BinaryIO.writeVarInt(record, duration);
+        BinaryIO.writeVarInt(record, results.size());
+        for (final FileResult result : results) {
+            result.writeTo(record);
+        }
+        record.flush();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.getChannel().lock();
+            if (out.length() >= 8 && (out.readInt() != MAGIC || out.readInt() != VERSION)) {
+                System.err.println(TestSuite.ERR_PREF + "Replacing history of another version: " + file);
+                out.setLength(0);
+            }
+            if (out.length() < 8) {
+                out.setLength(0);
+                out.seek(0);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+            long end = out.getFilePointer();
+            while (end < out.length()) {
+                final long length;
+                try {
+                    length = BinaryIO.readVarInt(out);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (out.getFilePointer() + length > out.length()) {
+                    break;
+                }
+                end = out.getFilePointer() + length;
+                out.seek(end);
+            }
+            out.setLength(end);
+            out.seek(end);
+            final ByteArrayOutputStream framed = new ByteArrayOutputStream(bytes.size() + 5);
+            BinaryIO.writeVarInt(new DataOutputStream(framed), bytes.size());
+            bytes.writeTo(framed);
+            out.write(framed.toByteArray());
+        }
+    }
+
+    /**
+     * Reads the last runs.
+     *
+     * @param count Most runs to read.
+     * @return Runs from the oldest to the latest, empty if there is no
+     * history.
+     * @throws IOException Will be thrown if the file isn't a history of this
+     *                     version or couldn't be read.
+     */
+    public List<Run> read(final int count) throws IOException {
+        if (!file.isFile()) {
+            return Collections.emptyList();
+        }
+        final Deque<byte[]> last = new ArrayDeque<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file.getName() + " isn't a history of this version!");
+            }
+            while (true) {
+                final byte[] record;
+                try {
+                    record = new byte[(int) BinaryIO.readVarInt(in)];
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break;
+                }
+                last.addLast(record);
+                if (last.size() > count) {
+                    last.removeFirst();
+                }
+            }
+        }
+        final List<Run> runs = new ArrayList<>();
+        for (final byte[] record : last) {
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            try {
+                final long time = BinaryIO.readVarInt(in);
+                final long duration = BinaryIO.readVarInt(in);
+                final int files = (int) BinaryIO.readVarInt(in);
+                final List<FileResult> results = new ArrayList<>(files);
+                for (int i = 0; i < files; i++) {
+                    results.add(FileResult.readFrom(in));
+                }
+                runs.add(new Run(time, duration, results));
+            } catch (IOException e) {
+                System.err.println(TestSuite.ERR_PREF + "Ignoring broken run in history: " + e.getMessage());
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Compares the latest run with the runs before it.
+     *
+     * @param window Count of earlier runs compared with.
+     * @return Comparison of the latencies of every file and command word of
+     * the latest run tested in enough earlier runs.
+     * @throws IOException Will be thrown if the history couldn't be read.
+     */
+    public Comparison compare(final int window) throws IOException {
+        final List<Run> runs = read(window + 1);
+        if (runs.isEmpty()) {
+            return new Comparison(0, Collections.emptyList());
+        }
+        final Run latest = runs.get(runs.size() - 1);
+        final List<Run> baseline = runs.subList(0, runs.size() - 1);
+        final List<Change> changes = new ArrayList<>();
+        for (final FileResult result : latest.getResults()) {
+            final CommandLatencies current = result.getCommandLatencies();
+            final Map<String, Baseline> before = new LinkedHashMap<>();
+            final Baseline beforeTotal = new Baseline();
+            for (final Run run : baseline) {
+                for (final FileResult earlier : run.getResults()) {
+                    if (!earlier.getName().equals(result.getName())) {
+                        continue;
+                    }
+                    for (final String word : earlier.getCommandLatencies().getWords()) {
+                        before.computeIfAbsent(word, w -> new Baseline())
+                                .add(earlier.getCommandLatencies().get(word));
+                    }
+                    beforeTotal.add(earlier.getCommandLatencies().total());
+                }
+            }
+            add(changes, result.getName(), null, current.total(), beforeTotal);
+            if (current.getWords().size() > 1) {
+                for (final String word : current.getWords()) {
+                    final Baseline earlier = before.get(word);
+                    if (earlier != null) {
+                        add(changes, result.getName(), word, current.get(word), earlier);
+                    }
+                }
+            }
+        }
+        return new Comparison(baseline.size(), changes);
+    }
+
+    private static void add(final List<Change> changes, final String name, final String word,
+                            final LatencyHistogram current, final Baseline baseline) {
+        if (current.getCount() >= MIN_SAMPLES && baseline.pooled.getCount() >= MIN_SAMPLES) {
+            changes.add(new Change(name, word, baseline.runs, baseline.pooled.percentile(50),
+                    baseline.highestMedian, current.percentile(50), current.slowerThan(baseline.pooled)));
+        }
+    }
+
+    /**
+     * Latencies of a file or command word in the earlier runs. The latencies
+     * of one run aren't independent of each other, they share the load of the
+     * machine and the state of the JIT, so the medians of the single runs show
+     * how much runs vary without any change.
+     */
+    private static final class Baseline {
+        private final LatencyHistogram pooled = new LatencyHistogram();
+        private int runs;
+        private long highestMedian;
+
+        void add(final LatencyHistogram run) {
+            pooled.add(run);
+            if (run.getCount() > 0) {
+                runs++;
+                highestMedian = Math.max(highestMedian, run.percentile(50));
+            }
+        }
+    }
+
+    /**
+     * One run of the history.
+     */
+    public static final class Run {
+        private final long time;
+        private final long duration;
+        private final List<FileResult> results;
+
+        Run(final long time, final long duration, final List<FileResult> results) {
+            this.time = time;
+            this.duration = duration;
+            this.results = Collections.unmodifiableList(results);
+        }
+
+        /**
+         * Getter of the time.
+         *
+         * @return End of the run in milliseconds since the epoch.
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Getter of the duration.
+         *
+         * @return Duration of the run in nanoseconds.
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * Getter of the results.
+         *
+         * @return Results of the files tested by the run.
+         */
+        public List<FileResult> getResults() {
+            return results;
+        }
+    }
+
+    /**
+     * Comparison of the latest run with the runs before it.
+     */
+    public static final class Comparison {
+        private final int baselineRuns;
+        private final List<Change> changes;
+
+        Comparison(final int baselineRuns, final List<Change> changes) {
+            this.baselineRuns = baselineRuns;
+            this.changes = Collections.unmodifiableList(changes);
+        }
+
+        /**
+         * Getter of the count of earlier runs.
+         *
+         * @return Count of runs compared with, 0 if there were none.
+         */
+        public int getBaselineRuns() {
+            return baselineRuns;
+        }
+
+        /**
+         * Getter of the changes.
+         *
+         * @return Changes of all compared files and command words.
+         */
+        public List<Change> getChanges() {
+            return changes;
+        }
+
+        /**
+         * Collects the slowdowns.
+         *
+         * @return Changes which are slowdowns.
+         */
+        public List<Change> getSlowdowns() {
+            final List<Change> slowdowns = new ArrayList<>();
+            for (final Change change : changes) {
+                if (change.isSlowdown()) {
+                    slowdowns.add(change);
+                }
+            }
+            return slowdowns;
+        }
+    }
+
+    /**
+     * Change of the latencies of a file or of one command word in it.
+     */
+    public static final class Change {
+        private final String name;
+        private final String word;
+        private final int runs;
+        private final long baselineMedian;
+        private final long highestMedian;
+        private final long currentMedian;
+        private final double probability;
+
+        Change(final String name, final String word, final int runs, final long baselineMedian,
+               final long highestMedian, final long currentMedian, final double probability) {
+            this.name = name;
+            this.word = word;
+            this.runs = runs;
+            this.baselineMedian = baselineMedian;
+            this.highestMedian = highestMedian;
+            this.currentMedian = currentMedian;
+            this.probability = probability;
+        }
+
+        /**
+         * Getter of the file name.
+         *
+         * @return Name of the test file.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Getter of the command word.
+         *
+         * @return Command word or null for all commands of the file.
+         */
+        public String getWord() {
+            return word;
+        }
+
+        /**
+         * Getter of the probability.
+         *
+         * @return One-sided p-value of the latencies getting higher.
+         */
+        public double getProbability() {
+            return probability;
+        }
+
+        /**
+         * Getter of the outcome.
+         *
+         * @return true, if there are at least three earlier runs, the
+         * latencies got significantly higher and the median is at least 10%
+         * higher than in any of the earlier runs.
+         */
+        public boolean isSlowdown() {
+            return runs >= MIN_RUNS && probability < ALPHA && currentMedian > highestMedian * (1 + MIN_SLOWDOWN);
+        }
+
+        @Override
+        public String toString() {
+            return name + (word != null ? " \"" + word + "\"" : "") + ": p50 "
+                    + LatencyHistogram.format(baselineMedian) + " -> " + LatencyHistogram.format(currentMedian)
+                    + String.format(Locale.ROOT, " (%+.0f%%), p=%.2g",
+                    (currentMedian - baselineMedian) * 100.0 / Math.max(1, baselineMedian), probability)
+                    + ", " + runs + " earlier runs up to " + LatencyHistogram.format(highestMedian);
+        }
+    }
+}
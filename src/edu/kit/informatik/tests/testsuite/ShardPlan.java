@@ -0,0 +1,131 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Partition of the test files into shards of about the same duration. Files
+ * are assigned longest first, each to the shard with the least estimated
+ * duration so far. Every shard computes the same partition, as long as all
+ * of them see the same files and durations.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class ShardPlan {
+
+    private final int index;
+    private final int count;
+
+    /**
+     * Initialises a plan.
+     *
+     * @param index Index of the own shard, starting with 1.
+     * @param count Count of shards.
+     * @throws IllegalArgumentException Will be thrown if index isn't between 1
+     *                                  and count.
+     */
+    public ShardPlan(final int index, final int count) {
+        if (count < 1 || index < 1 || index > count) {
+            throw new IllegalArgumentException("Illegal shard " + index + "/" + count);
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    /**
+     * Parses a shard like it is stored in TestSuite.config.
+     *
+     * @param value Shard as "index/count", e.g. "1/4".
+     * @return Parsed plan.
+     * @throws IllegalArgumentException Will be thrown if value isn't a shard.
+     */
+    public static ShardPlan parse(final String value) {
+        final int slash = value.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Expected <index>/<count> instead of '" + value + "'");
+        }
+        return new ShardPlan(Integer.parseInt(value.substring(0, slash).trim()),
+                Integer.parseInt(value.substring(slash + 1).trim()));
+    }
+
+    /**
+     * Selects the files of the own shard. Files without recorded duration are
+     * estimated by their size and the average duration per byte of the other
+     * files.
+     *
+     * @param files     All test files.
+     * @param durations Durations of previous runs.
+     * @return Files of the own shard, longest first.
+     */
+    public List<File> select(final File[] files, final Durations durations) {
+        final long[] estimates = estimate(files, durations);
+        final Integer[] order = new Integer[files.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingLong(i -> -estimates[i])
+                .thenComparing(i -> files[i].getName()));
+        final long[] loads = new long[count];
+        final List<File> selected = new ArrayList<>();
+        for (final int file : order) {
+            int shard = 0;
+            for (int i = 1; i < count; i++) {
+                if (loads[i] < loads[shard]) {
+                    shard = i;
+                }
+            }
+            loads[shard] += estimates[file];
+            if (shard == index - 1) {
+                selected.add(files[file]);
+            }
+        }
+        return selected;
+    }
+
+    private static long[] estimate(final File[] files, final Durations durations) {
+        final long[] estimates = new long[files.length];
+        long knownNanos = 0;
+        long knownBytes = 0;
+        for (int i = 0; i < files.length; i++) {
+            estimates[i] = durations.get(files[i].getName());
+            if (estimates[i] >= 0) {
+                knownNanos += estimates[i];
+                knownBytes += files[i].length();
+            }
+        }
+        final double nanosPerByte = knownBytes > 0 ? (double) knownNanos / knownBytes : 1;
+        for (int i = 0; i < files.length; i++) {
+            if (estimates[i] < 0) {
+                estimates[i] = Math.max(1, (long) (files[i].length() * nanosPerByte));
+            }
+        }
+        return estimates;
+    }
+
+    /**
+     * Getter of the index.
+     *
+     * @return Index of the own shard, starting with 1.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Getter of the count.
+     *
+     * @return Count of shards.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
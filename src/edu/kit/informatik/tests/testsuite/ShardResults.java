@@ -0,0 +1,119 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Results of one shard, stored so the results of all shards can be merged into
+ * one report.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class ShardResults {
+
+    /**
+     * Suffix of the files the results of a shard are stored in.
+     */
+    public static final String SUFFIX = ".results";
+
+    private static final int MAGIC = 0x54535352;
+    private static final int VERSION = 3;
+    private static final Pattern NAME = Pattern.compile("shard-([1-9][0-9]{0,8})-of-([1-9][0-9]{0,8})"
+            + Pattern.quote(SUFFIX));
+
+    private ShardResults() {
+    }
+
+    /**
+     * Name of the result file of a shard.
+     *
+     * @param plan Plan of the shard.
+     * @return Name like "shard-1-of-4.results".
+     */
+    public static String fileName(final ShardPlan plan) {
+        return "shard-" + plan.getIndex() + "-of-" + plan.getCount() + SUFFIX;
+    }
+
+    /**
+     * Parses the name of a result file of a shard.
+     *
+     * @param name Name written by {@link #fileName(ShardPlan)}.
+     * @return Plan of the shard or null if name isn't the name of a result
+     * file of a shard.
+     */
+    public static ShardPlan parseFileName(final String name) {
+        final Matcher matcher = NAME.matcher(name);
+        if (!matcher.matches()) {
+            return null;
+        }
+        try {
+            return new ShardPlan(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the results of a shard. The file is replaced at once, so a shard
+     * killed while writing never leaves half of it.
+     *
+     * @param results Results of the files of the shard.
+     * @param file    File to write to.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    public static void write(final Collection<FileResult> results, final File file) throws IOException {
+        final File dir = file.getAbsoluteFile().getParentFile();
+        final File temp = File.createTempFile(file.getName(), ".tmp", dir);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            BinaryIO.writeVarInt(out, results.size());
+            for (final FileResult result : results) {
+                result.writeTo(out);
+            }
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads the results of a shard.
+     *
+     * @param file File written with {@link #write(Collection, File)}.
+     * @return Results of the files of the shard.
+     * @throws IOException Will be thrown if reading failed or file isn't a
+     *                     result file.
+     */
+    public static List<FileResult> read(final File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file.getName() + " isn't a result file of this version!");
+            }
+            final int count = (int) BinaryIO.readVarInt(in);
+            final List<FileResult> results = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                results.add(FileResult.readFrom(in));
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Installs proxies for System.in and System.out once and routes every call to
+ * the streams bound to the calling thread. Threads without a binding use the
+ * original streams. Bindings are inherited by threads the tested program
+ * starts itself.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class StreamRouter {
+
+    private static final InheritableThreadLocal<InputStream> IN = new InheritableThreadLocal<>();
+    private static final InheritableThreadLocal<PrintStream> OUT = new InheritableThreadLocal<>();
+
+    private static InputStream originalIn;
+    private static PrintStream originalOut;
+
+    private StreamRouter() {
+    }
+
+    /**
+     * Replaces System.in and System.out with the routing proxies. Calling this
+     * more than once has no effect.
+     */
+    public static synchronized void install() {
+        if (originalOut == null) {
+            originalIn = System.in;
+            originalOut = System.out;
+            System.setIn(new RoutingInputStream());
+            System.setOut(new RoutingPrintStream(originalOut));
+        }
+    }
+
+    /**
+     * Getter of the System.out in place before {@link #install()}.
+     *
+     * @return Original standard output.
+     */
+    public static PrintStream getOriginalOut() {
+        return originalOut != null ? originalOut : System.out;
+    }
+
+    /**
+     * Binds streams to the calling thread and all threads started by it
+     * afterwards.
+     *
+     * @param in  Stream System.in reads from.
+     * @param out Stream System.out writes to.
+     */
+    public static void bind(final InputStream in, final PrintStream out) {
+        IN.set(in);
+        OUT.set(out);
+    }
+
+    /**
+     * Removes the binding of the calling thread.
+     */
+    public static void unbind() {
+        IN.remove();
+        OUT.remove();
+    }
+
+    private static InputStream in() {
+        final InputStream in = IN.get();
+        return in != null ? in : originalIn;
+    }
+
+    private static PrintStream out() {
+        final PrintStream out = OUT.get();
+        return out != null ? out : originalOut;
+    }
+
+    /**
+     * Proxy of System.in.
+     */
+    private static final class RoutingInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            return in().read();
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            return in().read(b, off, len);
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            return in().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in().available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in().close();
+        }
+
+        @Override
+        public synchronized void mark(final int readlimit) {
+            in().mark(readlimit);
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            in().reset();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return in().markSupported();
+        }
+    }
+
+    /**
+     * Proxy of System.out. Every method is delegated so that threads don't
+     * share the lock and buffers of a single PrintStream.
+     */
+    private static final class RoutingPrintStream extends PrintStream {
+
+        RoutingPrintStream(final PrintStream fallback) {
+            super(fallback);
+        }
+
+        @Override
+        public void flush() {
+            out().flush();
+        }
+
+        @Override
+        public void close() {
+            out().close();
+        }
+
+        @Override
+        public boolean checkError() {
+            return out().checkError();
+        }
+
+        @Override
+        public void write(final int b) {
+            out().write(b);
+        }
+
+        @Override
+        public void write(final byte[] buf, final int off, final int len) {
+            out().write(buf, off, len);
+        }
+
+        @Override
+        public void print(final boolean b) {
+            out().print(b);
+        }
+
+        @Override
+        public void print(final char c) {
+            out().print(c);
+        }
+
+        @Override
+        public void print(final int i) {
+            out().print(i);
+        }
+
+        @Override
+        public void print(final long l) {
+            out().print(l);
+        }
+
+        @Override
+        public void print(final float f) {
+            out().print(f);
+        }
+
+        @Override
+        public void print(final double d) {
+            out().print(d);
+        }
+
+        @Override
+        public void print(final char[] s) {
+            out().print(s);
+        }
+
+        @Override
+        public void print(final String s) {
+            out().print(s);
+        }
+
+        @Override
+        public void print(final Object obj) {
+            out().print(obj);
+        }
+
+        @Override
+        public void println() {
+            out().println();
+        }
+
+        @Override
+        public void println(final boolean x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(final char x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(final int x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(final long x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(final float x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(final double x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(final char[] x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(final String x) {
+            out().println(x);
+        }
+
+        @Override
+        public void println(final Object x) {
+            out().println(x);
+        }
+
+        @Override
+        public PrintStream printf(final String format, final Object... args) {
+            return out().printf(format, args);
+        }
+
+        @Override
+        public PrintStream printf(final Locale l, final String format, final Object... args) {
+            return out().printf(l, format, args);
+        }
+
+        @Override
+        public PrintStream format(final String format, final Object... args) {
+            return out().format(format, args);
+        }
+
+        @Override
+        public PrintStream format(final Locale l, final String format, final Object... args) {
+            return out().format(l, format, args);
+        }
+
+        @Override
+        public PrintStream append(final CharSequence csq) {
+            return out().append(csq);
+        }
+
+        @Override
+        public PrintStream append(final CharSequence csq, final int start, final int end) {
+            return out().append(csq, start, end);
+        }
+
+        @Override
+        public PrintStream append(final char c) {
+            return out().append(c);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.File;
+import java.io.PrintStream;
+
+/**
+ * Configuration of a {@link SuiteRunner}. Holds everything TestSuite.config
+ * can set, so suites can be run without a config file or interactive input.
+ * Options not set keep the defaults of TestSuite.config.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class SuiteConfig {
+
+    private final File testsDir;
+    private final Class<?> testClass;
+    private File logDir;
+    private PrintStream out;
+    private int parallelism = 1;
+    private boolean isolation;
+    private boolean fork;
+    private boolean incremental;
+    private boolean streaming;
+    private ShardPlan shard;
+    private Watchdog watchdog = Watchdog.UNLIMITED;
+    private boolean history = true;
+    private int historyWindow = RunHistory.DEFAULT_WINDOW;
+
+    /**
+     * Initialises a configuration with default options.
+     *
+     * @param testsDir  Directory containing the .test-Files.
+     * @param testClass Class whose main is tested.
+     */
+    public SuiteConfig(final File testsDir, final Class<?> testClass) {
+        this.testsDir = testsDir;
+        this.testClass = testClass;
+    }
+
+    /**
+     * Getter of the tests directory.
+     *
+     * @return Directory containing the .test-Files.
+     */
+    public File getTestsDir() {
+        return testsDir;
+    }
+
+    /**
+     * Getter of the tested class.
+     *
+     * @return Class whose main is tested.
+     */
+    public Class<?> getTestClass() {
+        return testClass;
+    }
+
+    /**
+     * Getter of the log directory.
+     *
+     * @return Directory of logs, reports and caches, "logs" in the tests
+     * directory by default.
+     */
+    public File getLogDir() {
+        return logDir != null ? logDir : new File(testsDir, "logs");
+    }
+
+    /**
+     * Setter of the log directory.
+     *
+     * @param logDir Directory of logs, reports and caches.
+     */
+    public void setLogDir(final File logDir) {
+        this.logDir = logDir;
+    }
+
+    /**
+     * Getter of the stream progress and summaries are printed to.
+     *
+     * @return Stream to print to, the original System.out by default.
+     */
+    public PrintStream getOut() {
+        return out != null ? out : StreamRouter.getOriginalOut();
+    }
+
+    /**
+     * Setter of the stream progress and summaries are printed to.
+     *
+     * @param out Stream to print to.
+     */
+    public void setOut(final PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Getter of the parallelism.
+     *
+     * @return Count of files tested at once.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Setter of the parallelism.
+     *
+     * @param parallelism Count of files tested at once, less than 1 for all
+     *                    cores.
+     */
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism;
+    }
+
+    /**
+     * Getter of the isolation.
+     *
+     * @return true, if the class is loaded again for every file.
+     */
+    public boolean isIsolation() {
+        return isolation;
+    }
+
+    /**
+     * Setter of the isolation.
+     *
+     * @param isolation true, if the class should be loaded again for every
+     *                  file.
+     */
+    public void setIsolation(final boolean isolation) {
+        this.isolation = isolation;
+    }
+
+    /**
+     * Getter of forking.
+     *
+     * @return true, if the files are tested in worker JVMs.
+     */
+    public boolean isFork() {
+        return fork;
+    }
+
+    /**
+     * Setter of forking.
+     *
+     * @param fork true, if the files should be tested in worker JVMs.
+     */
+    public void setFork(final boolean fork) {
+        this.fork = fork;
+    }
+
+    /**
+     * Getter of the incremental mode.
+     *
+     * @return true, if unchanged passed files are skipped.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Setter of the incremental mode.
+     *
+     * @param incremental true, if unchanged passed files should be skipped.
+     */
+    public void setIncremental(final boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Getter of streaming.
+     *
+     * @return true, if cases are read while testing.
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Setter of streaming.
+     *
+     * @param streaming true, if cases should be read while testing.
+     */
+    public void setStreaming(final boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Getter of the shard.
+     *
+     * @return Shard to test or null to test all files.
+     */
+    public ShardPlan getShard() {
+        return shard;
+    }
+
+    /**
+     * Setter of the shard.
+     *
+     * @param shard Shard to test or null to test all files.
+     */
+    public void setShard(final ShardPlan shard) {
+        this.shard = shard;
+    }
+
+    /**
+     * Getter of the watchdog.
+     *
+     * @return Watchdog with the deadlines of the files.
+     */
+    public Watchdog getWatchdog() {
+        return watchdog;
+    }
+
+    /**
+     * Setter of the watchdog.
+     *
+     * @param watchdog Watchdog with the deadlines of the files.
+     */
+    public void setWatchdog(final Watchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * Getter of the history.
+     *
+     * @return true, if runs are appended to the history in the log
+     * directory.
+     */
+    public boolean isHistory() {
+        return history;
+    }
+
+    /**
+     * Setter of the history.
+     *
+     * @param history true, if runs should be appended to the history in the
+     *                log directory.
+     */
+    public void setHistory(final boolean history) {
+        this.history = history;
+    }
+
+    /**
+     * Getter of the history window.
+     *
+     * @return Count of earlier runs a run is compared with, 0 if runs aren't
+     * compared.
+     */
+    public int getHistoryWindow() {
+        return historyWindow;
+    }
+
+    /**
+     * Setter of the history window.
+     *
+     * @param historyWindow Count of earlier runs a run should be compared
+     *                      with, 0 to not compare runs.
+     */
+    public void setHistoryWindow(final int historyWindow) {
+        this.historyWindow = Math.max(0, historyWindow);
+    }
+}
@@ -0,0 +1,68 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of all files tested in one run of a {@link SuiteRunner}.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class SuiteResult {
+
+    private final List<FileResult> results;
+
+    /**
+     * Initialises a new result.
+     *
+     * @param results Results of the tested files.
+     */
+    public SuiteResult(final Collection<FileResult> results) {
+        this.results = Collections.unmodifiableList(new ArrayList<>(results));
+    }
+
+    /**
+     * Getter of the file results.
+     *
+     * @return Results of the tested files.
+     */
+    public List<FileResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Getter of the passed file count.
+     *
+     * @return Count of files without failures.
+     */
+    public int getPassedCount() {
+        int passed = 0;
+        for (final FileResult result : results) {
+            if (result.isPassed()) {
+                passed++;
+            }
+        }
+        return passed;
+    }
+
+    /**
+     * Getter of the failed file count.
+     *
+     * @return Count of files with failures.
+     */
+    public int getFailedCount() {
+        return results.size() - getPassedCount();
+    }
+
+    /**
+     * Getter of the outcome.
+     *
+     * @return true, if every file passed.
+     */
+    public boolean isPassed() {
+        return getFailedCount() == 0;
+    }
+}
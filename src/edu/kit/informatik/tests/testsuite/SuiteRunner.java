@@ -0,0 +1,519 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the .test-Files of one tests directory as configured by a
+ * {@link SuiteConfig}. All state of a run belongs to the runner, so any number
+ * of runners can be used one after another or at once in the same JVM. A
+ * runner keeps its threads and worker JVMs until it is closed, so running it
+ * again is fast.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class SuiteRunner implements Closeable {
+
+    private static final String REPORT_NAME = "TEST-TestSuite.xml";
+    private static final String CACHE_NAME = "results.cache";
+    private static final String DURATIONS_NAME = "durations";
+    private static final String HISTORY_NAME = "history";
+    private static final AtomicInteger RUNNER_COUNT = new AtomicInteger();
+
+    private final SuiteConfig config;
+    private final PrintStream out;
+    private final File logDir;
+    private final ExecutorService executor;
+    private final Durations durations;
+    private final ResultCache cache;
+    private final RunHistory history;
+    private WorkerPool workers;
+
+    /**
+     * Initialises a runner and starts its threads and, if configured, its
+     * worker JVMs.
+     *
+     * @param config Configuration of the runner.
+     * @throws IOException Will be thrown if the tests directory doesn't exist
+     *                     or the log directory couldn't be created.
+     */
+    public SuiteRunner(final SuiteConfig config) throws IOException {
+        if (!config.getTestsDir().isDirectory()) {
+            throw new IOException("Not a valid directory: " + config.getTestsDir());
+        }
+        this.config = config;
+        this.logDir = config.getLogDir();
+        if (!logDir.isDirectory() && !logDir.mkdirs() && !logDir.isDirectory()) {
+            throw new IOException("Failed to create log-directory " + logDir);
+        }
+        StreamRouter.install();
+        this.out = config.getOut();
+        final int runner = RUNNER_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(config.getParallelism(), runnable -> {
+            final Thread thread = new Thread(runnable, "TestSuite-" + (runner > 1 ? runner + "-" : "")
+                    + threadCount.incrementAndGet());
+            thread.setDaemon(false);
+            return thread;
+        });
+        this.durations = new Durations(new File(logDir, DURATIONS_NAME));
+        this.cache = config.isIncremental() ? new ResultCache(new File(logDir, CACHE_NAME + shardSuffix())) : null;
+        this.history = config.isHistory() && config.getShard() == null
+                ? new RunHistory(new File(logDir, HISTORY_NAME)) : null;
+        if (config.isFork()) {
+            workers = startWorkers();
+        }
+    }
+
+    /**
+     * Tests all .test-Files of the tests directory, or those of the configured
+     * shard, prints the summary and writes the report.
+     *
+     * @return Results of the tested files.
+     * @throws IOException Will be thrown if the tests directory doesn't
+     *                     contain .test-Files.
+     */
+    public SuiteResult run() throws IOException {
+        final File[] files = listTestFiles();
+        if (files.length == 0) {
+            throw new IOException("Tests directory doesn't contain .test-Files!");
+        }
+        final long start = System.nanoTime();
+        final Set<String> cached = ConcurrentHashMap.newKeySet();
+        final List<FileResult> results = testFiles(selectFiles(files), cached);
+        printSummary(out, results);
+        save(results);
+        record(results, cached, System.nanoTime() - start);
+        return new SuiteResult(results);
+    }
+
+    /**
+     * Tests the files affected by changes until the calling thread is
+     * interrupted. Classes are loaded again for every run, so changed bytecode
+     * is tested; the runner should be configured with isolation.
+     *
+     * @param first Results of the first run.
+     */
+    public void watch(final SuiteResult first) {
+        final Map<String, FileResult> latest = new TreeMap<>();
+        for (final FileResult result : first.getResults()) {
+            latest.put(result.getName(), result);
+        }
+        final File testsDir = config.getTestsDir();
+        try (TestWatcher watcher = new TestWatcher(testsDir, ResultCache.programDirectory(config.getTestClass()))) {
+            out.println(TestSuite.DEF_PREF + "## watching " + testsDir + " for changes, stop with Ctrl+C");
+            while (true) {
+                File[] current = listTestFiles();
+                for (final File f : current) {
+                    for (final File fixture : fixtures(f)) {
+                        if (fixture.isFile()) {
+                            watcher.watchFile(fixture);
+                        }
+                    }
+                }
+                final TestWatcher.Change change = watcher.take();
+                if (change.isClassesChanged()) {
+                    IsolatingClassLoader.clearCache();
+                    if (workers != null) {
+                        workers.close();
+                        workers = startWorkers();
+                    }
+                }
+                current = listTestFiles();
+                final List<File> affected = new ArrayList<>();
+                final Set<String> names = new HashSet<>();
+                for (final File f : current) {
+                    names.add(f.getName());
+                    if (change.isClassesChanged() || change.contains(f) || fixtureChanged(f, change)) {
+                        affected.add(f);
+                    }
+                }
+                latest.keySet().retainAll(names);
+                if (affected.isEmpty()) {
+                    continue;
+                }
+                final long start = System.nanoTime();
+                final Set<String> cached = ConcurrentHashMap.newKeySet();
+                final List<FileResult> results = testFiles(affected, cached);
+                for (final FileResult result : results) {
+                    latest.put(result.getName(), result);
+                }
+                printSummary(out, results);
+                out.println(TestSuite.DEF_PREF + "## rerun took " + LatencyHistogram.format(System.nanoTime() - start));
+                save(latest.values());
+                record(results, cached, System.nanoTime() - start);
+            }
+        } catch (IOException e) {
+            System.err.println(TestSuite.ERR_PREF + "Failed watching for changes: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Merges the results of all shards stored in a directory into one summary
+     * and report. The durations of the files are recorded there for planning
+     * the next sharded run. The directory has to contain the results of every
+     * shard of exactly one count of shards, so no file is left out unnoticed.
+     *
+     * @param dir Directory containing the .results-Files of the shards.
+     * @param out Stream to print the summary to.
+     * @return Merged results.
+     * @throws IOException Will be thrown if dir doesn't contain the results of
+     *                     all shards, contains results of different counts of
+     *                     shards or results couldn't be read.
+     */
+    public static SuiteResult merge(final File dir, final PrintStream out) throws IOException {
+        final File[] found = dir.listFiles((d, name) -> name.endsWith(ShardResults.SUFFIX));
+        if (found == null || found.length == 0) {
+            throw new IOException(dir + " doesn't contain results of shards!");
+        }
+        final Map<Integer, File> shards = new TreeMap<>();
+        int count = 0;
+        for (final File f : found) {
+            final ShardPlan plan = ShardResults.parseFileName(f.getName());
+            if (plan == null) {
+                throw new IOException(f.getName() + " isn't named like the results of a shard!");
+            }
+            if (count != 0 && plan.getCount() != count) {
+                throw new IOException(dir + " contains results of " + count + " and of " + plan.getCount()
+                        + " shards!");
+            }
+            count = plan.getCount();
+            if (shards.put(plan.getIndex(), f) != null) {
+                throw new IOException(dir + " contains the results of shard " + plan + " twice!");
+            }
+        }
+        if (shards.size() != count) {
+            final List<Integer> missing = new ArrayList<>();
+            for (int i = 1; i <= count; i++) {
+                if (!shards.containsKey(i)) {
+                    missing.add(i);
+                }
+            }
+            throw new IOException(dir + " misses the results of shards " + missing + " of " + count + "!");
+        }
+        final Map<String, FileResult> merged = new TreeMap<>();
+        final List<String> merges = new ArrayList<>();
+        for (final File f : shards.values()) {
+            final List<FileResult> read;
+            try {
+                read = ShardResults.read(f);
+            } catch (IOException e) {
+                throw new IOException("Failed reading " + f.getName() + ": " + e, e);
+            }
+            for (final FileResult result : read) {
+                if (merged.put(result.getName(), result) != null) {
+                    throw new IOException(result.getName() + " was tested by more than one shard!");
+                }
+            }
+            merges.add(f.getName() + ": " + read.size() + " files");
+        }
+        for (final String merge : merges) {
+            out.println(TestSuite.DEF_PREF + "## merged " + merge);
+        }
+        out.println(TestSuite.DEF_PREF + "## merged " + count + " shards");
+        final List<FileResult> results = new ArrayList<>(merged.values());
+        printSummary(out, results);
+        saveDurations(new Durations(new File(dir, DURATIONS_NAME)), results);
+        writeReport(results, new File(dir, REPORT_NAME));
+        return new SuiteResult(results);
+    }
+
+    private List<File> selectFiles(final File[] files) {
+        final ShardPlan shard = config.getShard();
+        if (shard == null) {
+            return Arrays.asList(files);
+        }
+        final List<File> selected = shard.select(files, durations);
+        out.println(TestSuite.DEF_PREF + "## shard " + shard + ": " + selected.size() + " of " + files.length
+                + " files");
+        return selected;
+    }
+
+    private String shardSuffix() {
+        final ShardPlan shard = config.getShard();
+        return shard != null ? "-shard-" + shard.getIndex() + "-of-" + shard.getCount() : "";
+    }
+
+    private WorkerPool startWorkers() {
+        try {
+            return new WorkerPool(config.getParallelism(), config.getTestClass(), config.isIsolation(),
+                    config.isStreaming(), config.getWatchdog());
+        } catch (IOException e) {
+            System.err.println(TestSuite.ERR_PREF + "Failed starting workers, testing in this JVM: "
+                    + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Compares the latest run stored in a history with the runs before it and
+     * prints the change of every file and all slowdowns.
+     *
+     * @param file   History or directory containing it.
+     * @param window Count of earlier runs compared with.
+     * @param out    Stream to print the comparison to.
+     * @return Comparison of the latest run.
+     * @throws IOException Will be thrown if the history couldn't be read.
+     */
+    public static RunHistory.Comparison compare(final File file, final int window, final PrintStream out)
+            throws IOException {
+        final File historyFile = file.isDirectory() ? new File(file, HISTORY_NAME) : file;
+        if (!historyFile.isFile()) {
+            throw new IOException(historyFile + " doesn't exist!");
+        }
+        final RunHistory.Comparison comparison = new RunHistory(historyFile).compare(window);
+        for (final RunHistory.Change change : comparison.getChanges()) {
+            if (change.getWord() == null) {
+                out.println(TestSuite.DEF_PREF + "## compare " + change);
+            }
+        }
+        printSlowdowns(out, comparison);
+        return comparison;
+    }
+
+    /**
+     * Appends the files tested by a run to the history and prints their
+     * slowdowns against the earlier runs. Results taken from the result cache
+     * are left out, they were recorded by the run testing them.
+     *
+     * @param results  Results of the run.
+     * @param cached   Names of the files taken from the result cache.
+     * @param duration Duration of the run in nanoseconds.
+     */
+    private void record(final List<FileResult> results, final Set<String> cached, final long duration) {
+        if (history == null) {
+            return;
+        }
+        final List<FileResult> tested = new ArrayList<>();
+        for (final FileResult result : results) {
+            if (!cached.contains(result.getName())) {
+                tested.add(result);
+            }
+        }
+        if (tested.isEmpty()) {
+            return;
+        }
+        try {
+            history.append(tested, duration);
+            if (config.getHistoryWindow() > 0) {
+                printSlowdowns(out, history.compare(config.getHistoryWindow()));
+            }
+        } catch (IOException e) {
+            System.err.println(TestSuite.ERR_PREF + "Failed storing history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tests files in parallel.
+     *
+     * @param selected Files to test.
+     * @param cached   Set the names of files taken from the result cache are
+     *                 added to.
+     * @return Results of the files in the same order.
+     */
+    private List<FileResult> testFiles(final List<File> selected, final Set<String> cached) {
+        String hash = null;
+        if (cache != null) {
+            try {
+                hash = ResultCache.programHash(config.getTestClass());
+            } catch (IOException e) {
+                System.err.println(TestSuite.ERR_PREF + "Failed hashing tested program, testing all files: "
+                        + e.getMessage());
+            }
+        }
+        final String programHash = hash;
+        final WorkerPool pool = workers;
+        final List<Future<FileResult>> futures = new ArrayList<>();
+        for (final File f : selected) {
+            futures.add(executor.submit(() -> {
+                final File logFile = new File(
+                        logDir.getAbsoluteFile() + "/" + f.getName().replace(".test", "Test.log"));
+                final String key = programHash != null ? cacheKey(f, programHash) : null;
+                if (key != null) {
+                    final FileResult hit = cache.lookup(f.getName(), key);
+                    if (hit != null) {
+                        out.println(TestSuite.DEF_PREF + "## file: " + f.getName() + " (unchanged, skipped)");
+                        cached.add(f.getName());
+                        return hit;
+                    }
+                }
+                out.println(TestSuite.DEF_PREF + "## file: " + f.getName());
+                final FileResult result = pool != null ? pool.test(f, logFile)
+                        : TestSuite.runFile(config.getTestClass(), config.isIsolation(), config.isStreaming(),
+                        config.getWatchdog(), f, logFile);
+                if (key != null) {
+                    cache.store(key, result);
+                }
+                return result;
+            }));
+        }
+        final List<FileResult> results = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            final String name = selected.get(i).getName();
+            if (Thread.currentThread().isInterrupted()) {
+                results.add(FileResult.error(name, "Interrupted while testing"));
+                continue;
+            }
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                System.err.println(TestSuite.ERR_PREF + "Interrupted while waiting for tests to finish!");
+                Thread.currentThread().interrupt();
+                results.add(FileResult.error(name, "Interrupted while testing"));
+            } catch (ExecutionException e) {
+                System.err.println(TestSuite.ERR_PREF + "Something went wrong while testing " + name + "!");
+                e.getCause().printStackTrace();
+                results.add(FileResult.error(name, "Something went wrong while testing: " + e.getCause()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Calculates the key of a test file in the result cache.
+     *
+     * @param testFile    File containing the tests.
+     * @param programHash Hash of the tested program.
+     * @return Key of the file or null if it couldn't be read.
+     */
+    private String cacheKey(final File testFile, final String programHash) {
+        try {
+            final String[] arguments = config.isStreaming() ? TestFileParser.arguments(testFile)
+                    : TestFileParser.load(testFile, new File(logDir, "compiled")).getArguments();
+            return ResultCache.key(testFile, arguments, programHash);
+        } catch (ParseException | IOException e) {
+            return null;
+        }
+    }
+
+    private void save(final Collection<FileResult> results) {
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (IOException e) {
+                System.err.println(TestSuite.ERR_PREF + "Failed storing result cache: " + e.getMessage());
+            }
+        }
+        final ShardPlan shard = config.getShard();
+        if (shard != null) {
+            try {
+                ShardResults.write(results, new File(logDir, ShardResults.fileName(shard)));
+            } catch (IOException e) {
+                System.err.println(TestSuite.ERR_PREF + "Failed storing shard results: " + e.getMessage());
+            }
+        } else {
+            saveDurations(durations, results);
+        }
+        writeReport(results, new File(logDir, REPORT_NAME.replace(".xml", shardSuffix() + ".xml")));
+    }
+
+    private static void saveDurations(final Durations store, final Collection<FileResult> results) {
+        store.record(results);
+        try {
+            store.save();
+        } catch (IOException e) {
+            System.err.println(TestSuite.ERR_PREF + "Failed storing durations: " + e.getMessage());
+        }
+    }
+
+    private static void writeReport(final Collection<FileResult> results, final File report) {
+        try {
+            JUnitReport.write(new ArrayList<>(results), report);
+        } catch (IOException e) {
+            System.err.println(TestSuite.ERR_PREF + "Failed writing report: " + e.getMessage());
+        }
+    }
+
+    private static boolean fixtureChanged(final File testFile, final TestWatcher.Change change) {
+        for (final File fixture : fixtures(testFile)) {
+            if (change.contains(fixture)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<File> fixtures(final File testFile) {
+        final List<File> fixtures = new ArrayList<>();
+        try {
+            final String[] arguments = TestFileParser.arguments(testFile);
+            if (arguments != null) {
+                for (final String argument : arguments) {
+                    fixtures.add(new File(argument));
+                    fixtures.add(new File(argument.replace('\\', File.separatorChar).replace('/', File.separatorChar)));
+                }
+            }
+        } catch (ParseException | IOException ignored) {
+        }
+        return fixtures;
+    }
+
+    private File[] listTestFiles() {
+        final File[] found = config.getTestsDir().listFiles((dir, name) -> name.endsWith(".test"));
+        return found != null ? found : new File[0];
+    }
+
+    private static void printSummary(final PrintStream out, final List<FileResult> results) {
+        int passed = 0;
+        for (final FileResult result : results) {
+            if (result.isPassed()) {
+                passed++;
+            } else {
+                for (final TestFailure failure : result.getFailures()) {
+                    out.println(TestSuite.DEF_PREF + "FAILED " + result.getName() + " " + failure);
+                }
+            }
+        }
+        for (final FileResult result : results) {
+            if (result.getUsage().isMeasured()) {
+                out.println(TestSuite.DEF_PREF + "## resources " + result.getName() + ": " + result.getUsage());
+            }
+        }
+        out.println(TestSuite.DEF_PREF + "## summary: " + results.size() + " files, " + passed + " passed, "
+                + (results.size() - passed) + " failed");
+    }
+
+    private static void printSlowdowns(final PrintStream out, final RunHistory.Comparison comparison) {
+        if (comparison.getBaselineRuns() == 0) {
+            return;
+        }
+        final List<RunHistory.Change> slowdowns = comparison.getSlowdowns();
+        for (final RunHistory.Change slowdown : slowdowns) {
+            out.println(TestSuite.DEF_PREF + "SLOWER " + slowdown);
+        }
+        out.println(TestSuite.DEF_PREF + "## history: " + slowdowns.size() + " slowdowns against "
+                + comparison.getBaselineRuns() + " earlier runs");
+    }
+
+    /**
+     * Stops the threads and worker JVMs of this runner. Files still being
+     * tested are finished first.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        if (workers != null) {
+            workers.close();
+        }
+    }
+}
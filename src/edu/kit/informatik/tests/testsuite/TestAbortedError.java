@@ -0,0 +1,22 @@
+package edu.kit.informatik.tests.testsuite;
+
+/**
+ * Thrown into the tested program to stop the current test file after a failure
+ * was recorded. It's an Error, so programs catching Exception don't swallow it.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class TestAbortedError extends Error {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Initialises a new TestAbortedError.
+     *
+     * @param failure Failure which aborted the test.
+     */
+    public TestAbortedError(final TestFailure failure) {
+        super(failure.toString(), null, false, false);
+    }
+}
@@ -0,0 +1,68 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.nio.charset.Charset;
+
+/**
+ * One case of a test file, encoded once for serving its command and matching
+ * its output.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class TestCase {
+
+    private final String input;
+    private final byte[] command;
+    private final Expectation expectation;
+    private final long budget;
+
+    /**
+     * Initialises a new case.
+     *
+     * @param input       Command to input.
+     * @param expectation Expected output like it is stored in a TestFile.
+     * @param budget      Time budget in nanoseconds, 0 for none.
+     */
+    public TestCase(final String input, final String expectation, final long budget) {
+        this.input = input;
+        this.command = (input + System.lineSeparator()).getBytes(Charset.defaultCharset());
+        this.expectation = Expectation.compile(expectation);
+        this.budget = budget;
+    }
+
+    /**
+     * Getter of the input.
+     *
+     * @return Command to input.
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * Getter of the encoded command.
+     *
+     * @return Input followed by a line separator, encoded like System.in.
+     */
+    byte[] getCommand() {
+        return command;
+    }
+
+    /**
+     * Getter of the expectation.
+     *
+     * @return Expected output.
+     */
+    public Expectation getExpectation() {
+        return expectation;
+    }
+
+    /**
+     * Getter of the time budget.
+     *
+     * @return Budget in nanoseconds, 0 for none.
+     */
+    public long getBudget() {
+        return budget;
+    }
+}
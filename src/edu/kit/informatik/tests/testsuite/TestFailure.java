@@ -0,0 +1,150 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Failure of a case or of a whole test file.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class TestFailure {
+
+    private final int caseNumber;
+    private final String input;
+    private final String expected;
+    private final String actual;
+    private final String message;
+
+    /**
+     * Initialises a new failure.
+     *
+     * @param caseNumber Number of the failed case starting with 1, 0 if the
+     *                   failure doesn't belong to a case.
+     * @param input      Input of the case or null.
+     * @param expected   Expected output or null.
+     * @param actual     Actual output or null.
+     * @param message    Description of the failure.
+     */
+    public TestFailure(final int caseNumber, final String input, final String expected, final String actual,
+                       final String message) {
+        this.caseNumber = caseNumber;
+        this.input = input;
+        this.expected = expected;
+        this.actual = actual;
+        this.message = message;
+    }
+
+    /**
+     * Initialises a failure of a whole test file.
+     *
+     * @param message Description of the failure.
+     */
+    public TestFailure(final String message) {
+        this(0, null, null, null, message);
+    }
+
+    /**
+     * Getter of the case number.
+     *
+     * @return Number of the failed case starting with 1, 0 if the failure
+     * doesn't belong to a case.
+     */
+    public int getCaseNumber() {
+        return caseNumber;
+    }
+
+    /**
+     * Getter of the input.
+     *
+     * @return Input of the case or null.
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * Getter of the expected output.
+     *
+     * @return Expected output or null.
+     */
+    public String getExpected() {
+        return expected;
+    }
+
+    /**
+     * Getter of the actual output.
+     *
+     * @return Actual output or null.
+     */
+    public String getActual() {
+        return actual;
+    }
+
+    /**
+     * Getter of the message.
+     *
+     * @return Description of the failure.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Getter of the kind of the failure.
+     *
+     * @return Message with every number replaced by '#', so failures only
+     * differing in lines, columns or times are of the same kind.
+     */
+    public String getKind() {
+        return message.replaceAll("[0-9]+(\\.[0-9]+)?", "#");
+    }
+
+    /**
+     * Writes this failure in binary form.
+     *
+     * @param out Output to write to.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+        BinaryIO.writeVarInt(out, caseNumber);
+        BinaryIO.writeNullable(out, input);
+        BinaryIO.writeNullable(out, expected);
+        BinaryIO.writeNullable(out, actual);
+        BinaryIO.writeString(out, message);
+    }
+
+    /**
+     * Reads a failure written with {@link #writeTo(DataOutput)}.
+     *
+     * @param in Input to read from.
+     * @return Read failure.
+     * @throws IOException Will be thrown if reading failed.
+     */
+    public static TestFailure readFrom(final DataInput in) throws IOException {
+        return new TestFailure((int) BinaryIO.readVarInt(in), BinaryIO.readNullable(in),
+                BinaryIO.readNullable(in), BinaryIO.readNullable(in), BinaryIO.readString(in));
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        if (caseNumber > 0) {
+            builder.append("case ").append(caseNumber);
+            if (input != null) {
+                builder.append(" (\"").append(input).append("\")");
+            }
+            builder.append(": ");
+        }
+        builder.append(message);
+        if (expected != null) {
+            builder.append("\nexpected: ").append(expected);
+        }
+        if (actual != null) {
+            builder.append("\nactual: ").append(actual);
+        }
+        return builder.toString();
+    }
+}
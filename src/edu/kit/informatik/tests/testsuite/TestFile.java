@@ -0,0 +1,174 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.util.List;
+
+/**
+ * Parsed content of a .test-File.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class TestFile {
+
+    private final String[] arguments;
+    private final List<String> inputs;
+    private final List<String> expectations;
+    private final long[] budgets;
+    private final long fileBudget;
+    private final MemoryBudget memoryBudget;
+
+    /**
+     * Initialises a new TestFile.
+     *
+     * @param arguments    Command line arguments or null if there are none.
+     * @param inputs       Commands to input, one per case.
+     * @param expectations Expected outputs, one per case.
+     * @param budgets      Time budgets in nanoseconds, one per case with 0 for
+     *                     none, or null if no case has an own budget.
+     * @param fileBudget   Time budget in nanoseconds of cases without an own
+     *                     budget, 0 for none.
+     */
+    public TestFile(final String[] arguments, final List<String> inputs, final List<String> expectations,
+                    final long[] budgets, final long fileBudget) {
+        this(arguments, inputs, expectations, budgets, fileBudget, MemoryBudget.NONE);
+    }
+
+    /**
+     * Initialises a new TestFile with memory budgets.
+     *
+     * @param arguments    Command line arguments or null if there are none.
+     * @param inputs       Commands to input, one per case.
+     * @param expectations Expected outputs, one per case.
+     * @param budgets      Time budgets in nanoseconds, one per case with 0 for
+     *                     none, or null if no case has an own budget.
+     * @param fileBudget   Time budget in nanoseconds of cases without an own
+     *                     budget, 0 for none.
+     * @param memoryBudget Memory budgets of the whole file.
+     */
+    public TestFile(final String[] arguments, final List<String> inputs, final List<String> expectations,
+                    final long[] budgets, final long fileBudget, final MemoryBudget memoryBudget) {
+        this.arguments = arguments;
+        this.inputs = inputs;
+        this.expectations = expectations;
+        this.budgets = budgets;
+        this.fileBudget = fileBudget;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Getter of the command line arguments.
+     *
+     * @return Command line arguments or null if the file doesn't define any.
+     */
+    public String[] getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Getter of the inputs.
+     *
+     * @return Commands to input, one per case.
+     */
+    public List<String> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Getter of the expectations.
+     *
+     * @return Expected outputs, one per case.
+     */
+    public List<String> getExpectations() {
+        return expectations;
+    }
+
+    /**
+     * Getter of the time budgets of the cases.
+     *
+     * @return Budgets in nanoseconds, one per case with 0 for none, or null if
+     * no case has an own budget.
+     */
+    public long[] getBudgets() {
+        return budgets;
+    }
+
+    /**
+     * Getter of the time budget of cases without an own budget.
+     *
+     * @return Budget in nanoseconds, 0 for none.
+     */
+    public long getFileBudget() {
+        return fileBudget;
+    }
+
+    /**
+     * Getter of the memory budgets.
+     *
+     * @return Memory budgets of the whole file.
+     */
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Calculates the time budget of a case.
+     *
+     * @param index Index of the case.
+     * @return Budget in nanoseconds, 0 for none.
+     */
+    public long getBudget(final int index) {
+        return budgets != null && budgets[index] > 0 ? budgets[index] : fileBudget;
+    }
+
+    /**
+     * Creates a source serving the cases of this file. Cases are encoded on
+     * their first request and kept afterwards.
+     *
+     * @return Source of the cases.
+     */
+    public CaseSource cases() {
+        return new Cases();
+    }
+
+    /**
+     * Cases of a parsed file.
+     */
+    private final class Cases implements CaseSource {
+        private final TestCase[] cases = new TestCase[inputs.size()];
+
+        @Override
+        public String[] getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public MemoryBudget getMemoryBudget() {
+            return memoryBudget;
+        }
+
+        @Override
+        public TestCase get(final int index) {
+            if (index >= cases.length) {
+                return null;
+            }
+            if (cases[index] == null) {
+                cases[index] = new TestCase(inputs.get(index), expectations.get(index), getBudget(index));
+            }
+            return cases[index];
+        }
+
+        @Override
+        public int size() {
+            return cases.length;
+        }
+
+        @Override
+        public boolean isComplete() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,678 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Single pass lexer of the .test-Format described in {@link TestSuite}. Cases
+ * are read one after another with {@link #next()}.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class TestFileParser {
+
+    private static final int MAGIC = 0x54535431;
+    private static final int VERSION = 4;
+    private static final String COMPILED_SUFFIX = ".compiled";
+    private static final long RACY_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder token = new StringBuilder();
+    private int pos;
+    private int limit;
+    private int line = 1;
+    private int cases;
+
+    private String[] arguments;
+    private String input;
+    private String expectation;
+    private long budget;
+    private long fileBudget;
+    private long allocationBudget;
+    private long heapBudget;
+
+    /**
+     * Initialises a new parser.
+     *
+     * @param in Reader providing the content of a .test-File.
+     */
+    public TestFileParser(final Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Parses a .test-File. A compiled form of the file is stored in cacheDir,
+     * keyed by the full path of the file, and used instead of parsing again as
+     * long as the checksum of the file is unchanged. The checksum is skipped
+     * if modification time and size are unchanged and the file was modified
+     * clearly before it was compiled, as an edit within the granularity of
+     * the modification time might not change it.
+     *
+     * @param source   .test-File to parse.
+     * @param cacheDir Directory for compiled files or null to always parse.
+     * @return Content of the file.
+     * @throws IOException    Will be thrown if reading the file failed.
+     * @throws ParseException Will be thrown if the file is bad formatted.
+     */
+    public static TestFile load(final File source, final File cacheDir) throws IOException, ParseException {
+        final String path = source.getAbsolutePath();
+        final File compiled = cacheDir != null ? new File(cacheDir, source.getName() + "-"
+                + Integer.toHexString(path.hashCode()) + COMPILED_SUFFIX) : null;
+        final long modified = source.lastModified();
+        final long size = source.length();
+        final long readAt = System.currentTimeMillis();
+        byte[] content = null;
+        long crc = -1;
+        TestFile file = null;
+        if (compiled != null && compiled.isFile()) {
+            try (DataInputStream cache = new DataInputStream(new BufferedInputStream(new FileInputStream(compiled)))) {
+                if (cache.readInt() == MAGIC && cache.readInt() == VERSION && BinaryIO.readString(cache).equals(path)) {
+                    final long cachedModified = cache.readLong();
+                    final long cachedSize = cache.readLong();
+                    final long checksum = cache.readLong();
+                    final long compiledAt = cache.readLong();
+                    if (cachedModified == modified && cachedSize == size && compiledAt - modified > RACY_MILLIS) {
+                        return readCompiled(cache);
+                    }
+                    content = Files.readAllBytes(source.toPath());
+                    crc = checksum(content);
+                    if (crc == checksum) {
+                        file = readCompiled(cache);
+                    }
+                }
+            } catch (IOException e) {
+                file = null;
+            }
+        }
+        if (content == null) {
+            content = Files.readAllBytes(source.toPath());
+            crc = checksum(content);
+        }
+        if (file == null) {
+            file = parse(new InputStreamReader(new ByteArrayInputStream(content), Charset.defaultCharset()));
+        }
+        if (compiled != null) {
+            try {
+                writeCompiled(file, compiled, path, modified, size, crc, readAt);
+            } catch (IOException e) {
+                System.err.println(TestSuite.ERR_PREF + "Failed storing compiled file: " + e.getMessage());
+            }
+        }
+        return file;
+    }
+
+    private static long checksum(final byte[] content) {
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    /**
+     * Reads the command line arguments of a .test-File without parsing its
+     * cases.
+     *
+     * @param source .test-File to read.
+     * @return Command line arguments or null if the file doesn't define any.
+     * @throws IOException    Will be thrown if reading the file failed.
+     * @throws ParseException Will be thrown if the content in front of the
+     *                        first case is bad formatted.
+     */
+    public static String[] arguments(final File source) throws IOException, ParseException {
+        try (Reader in = new InputStreamReader(new FileInputStream(source), Charset.defaultCharset())) {
+            final TestFileParser parser = new TestFileParser(in);
+            parser.next();
+            return parser.getArguments();
+        }
+    }
+
+    /**
+     * Parses all cases a Reader provides.
+     *
+     * @param in Reader providing the content of a .test-File.
+     * @return Content of the file.
+     * @throws IOException    Will be thrown if reading failed.
+     * @throws ParseException Will be thrown if the content is bad formatted.
+     */
+    public static TestFile parse(final Reader in) throws IOException, ParseException {
+        final TestFileParser parser = new TestFileParser(in);
+        final List<String> inputs = new ArrayList<>();
+        final List<String> expectations = new ArrayList<>();
+        long[] budgets = null;
+        while (parser.next()) {
+            if (parser.getBudget() > 0) {
+                if (budgets == null) {
+                    budgets = new long[Math.max(16, inputs.size() * 2)];
+                } else if (budgets.length <= inputs.size()) {
+                    budgets = Arrays.copyOf(budgets, budgets.length * 2);
+                }
+                budgets[inputs.size()] = parser.getBudget();
+            }
+            inputs.add(parser.getInput());
+            expectations.add(parser.getExpectation());
+        }
+        if (budgets != null && budgets.length != inputs.size()) {
+            budgets = Arrays.copyOf(budgets, inputs.size());
+        }
+        return new TestFile(parser.getArguments(), inputs, expectations, budgets, parser.getFileBudget(),
+                parser.getMemoryBudget());
+    }
+
+    /**
+     * Reads the next case.
+     *
+     * @return true, if a case was read, false if the end was reached.
+     * @throws IOException    Will be thrown if reading failed.
+     * @throws ParseException Will be thrown if the content is bad formatted.
+     */
+    public boolean next() throws IOException, ParseException {
+        while (true) {
+            final int c = peek();
+            if (c == -1) {
+                return false;
+            } else if (c == '\n' || c == '\r') {
+                endOfLine();
+            } else if (c == '#') {
+                skipLine();
+            } else if (c == '<') {
+                if (cases > 0 || arguments != null) {
+                    throw error("Command line arguments have to be in front of all cases");
+                }
+                arguments = readArguments();
+                endOfLine();
+            } else if (c == '@') {
+                if (cases > 0) {
+                    throw error("Directives have to be in front of all cases");
+                }
+                readDirective();
+                endOfLine();
+            } else {
+                expectation = readExpectation();
+                readSeparator();
+                input = readInput();
+                budget = readBudget();
+                endOfLine();
+                cases++;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Getter of the command line arguments.
+     *
+     * @return Command line arguments or null if none were read.
+     */
+    public String[] getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Getter of the input of the current case.
+     *
+     * @return Input of the case read last.
+     */
+    public String getInput() {
+        return input;
+    }
+
+    /**
+     * Getter of the expectation of the current case.
+     *
+     * @return Expected output of the case read last.
+     */
+    public String getExpectation() {
+        return expectation;
+    }
+
+    /**
+     * Getter of the time budget of the current case.
+     *
+     * @return Budget of the case read last in nanoseconds, 0 if it has none.
+     */
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Getter of the time budget of all cases without an own budget.
+     *
+     * @return Budget set with '@budget' in nanoseconds, 0 if there is none.
+     */
+    public long getFileBudget() {
+        return fileBudget;
+    }
+
+    /**
+     * Getter of the memory budgets.
+     *
+     * @return Budgets set with '@alloc' and '@heap'.
+     */
+    public MemoryBudget getMemoryBudget() {
+        return allocationBudget > 0 || heapBudget > 0 ? new MemoryBudget(allocationBudget, heapBudget)
+                : MemoryBudget.NONE;
+    }
+
+    private void readDirective() throws IOException, ParseException {
+        read();
+        final String name = readWord();
+        if (!isBlank(read())) {
+            throw error("Expected value of directive '@" + name + "'");
+        }
+        final String value = readWord();
+        if (name.equals("budget")) {
+            fileBudget = parseDuration(value);
+        } else if (name.equals("alloc")) {
+            allocationBudget = parseSize(value);
+        } else if (name.equals("heap")) {
+            heapBudget = parseSize(value);
+        } else {
+            throw error("Unknown directive '@" + name + "'");
+        }
+    }
+
+    private long readBudget() throws IOException, ParseException {
+        if (!isBlank(peek())) {
+            return 0;
+        }
+        while (isBlank(peek())) {
+            read();
+        }
+        if (read() != '@') {
+            throw error("Expected '@' in front of the budget");
+        }
+        return parseDuration(readWord());
+    }
+
+    private String readWord() throws IOException {
+        token.setLength(0);
+        while (isWordChar(peek()) || peek() == '.') {
+            token.append((char) read());
+        }
+        return token.toString();
+    }
+
+    private long parseDuration(final String value) throws ParseException {
+        try {
+            return toNanos(value);
+        } catch (IllegalArgumentException e) {
+            throw error(e.getMessage());
+        }
+    }
+
+    private long parseSize(final String value) throws ParseException {
+        try {
+            return toBytes(value);
+        } catch (IllegalArgumentException e) {
+            throw error(e.getMessage());
+        }
+    }
+
+    /**
+     * Converts a size like "64MB" into bytes. Supported units are B, KB, MB
+     * and GB, each 1024 times the one before.
+     *
+     * @param value Size to convert.
+     * @return Size in bytes.
+     * @throws IllegalArgumentException Will be thrown if value isn't a size.
+     */
+    static long toBytes(final String value) {
+        int unit = 0;
+        while (unit < value.length() && (value.charAt(unit) >= '0' && value.charAt(unit) <= '9')) {
+            unit++;
+        }
+        if (unit == 0 || unit > 15) {
+            throw new IllegalArgumentException("Illegal size '" + value + "'");
+        }
+        final long amount = Long.parseLong(value.substring(0, unit));
+        switch (value.substring(unit)) {
+            case "B":
+                return amount;
+            case "KB":
+                return amount << 10;
+            case "MB":
+                return amount << 20;
+            case "GB":
+                return amount << 30;
+            default:
+                throw new IllegalArgumentException("Illegal unit of size '" + value
+                        + "', expected B, KB, MB or GB");
+        }
+    }
+
+    /**
+     * Converts a duration like "5ms" into nanoseconds. Supported units are ns,
+     * us, ms and s.
+     *
+     * @param value Duration to convert.
+     * @return Duration in nanoseconds.
+     * @throws IllegalArgumentException Will be thrown if value isn't a
+     *                                  duration.
+     */
+    static long toNanos(final String value) {
+        int unit = 0;
+        while (unit < value.length() && (value.charAt(unit) >= '0' && value.charAt(unit) <= '9')) {
+            unit++;
+        }
+        if (unit == 0 || unit > 18) {
+            throw new IllegalArgumentException("Illegal duration '" + value + "'");
+        }
+        final long amount = Long.parseLong(value.substring(0, unit));
+        switch (value.substring(unit)) {
+            case "ns":
+                return amount;
+            case "us":
+                return TimeUnit.MICROSECONDS.toNanos(amount);
+            case "ms":
+                return TimeUnit.MILLISECONDS.toNanos(amount);
+            case "s":
+                return TimeUnit.SECONDS.toNanos(amount);
+            default:
+                throw new IllegalArgumentException("Illegal unit of duration '" + value
+                        + "', expected ns, us, ms or s");
+        }
+    }
+
+    private String[] readArguments() throws IOException, ParseException {
+        read();
+        final List<String> args = new ArrayList<>();
+        int c;
+        do {
+            if (read() != '"') {
+                throw error("Expected '\"' in command line arguments");
+            }
+            token.setLength(0);
+            while ((c = read()) != '"') {
+                if (!isArgumentChar(c)) {
+                    throw error("Illegal character in command line arguments");
+                }
+                token.append((char) c);
+            }
+            if (token.length() == 0) {
+                throw error("Empty command line argument");
+            }
+            args.add(token.toString());
+            c = read();
+        } while (c == ';');
+        if (c != '>') {
+            throw error("Expected '>' after command line arguments");
+        }
+        return args.toArray(new String[args.size()]);
+    }
+
+    private String readExpectation() throws IOException, ParseException {
+        token.setLength(0);
+        int c = peek();
+        if (c == '"') {
+            read();
+            boolean regex = false;
+            boolean numeric = false;
+            while (!regex && !numeric && peek() == '!') {
+                read();
+                final int option = read();
+                if (option != 'C' && option != 'U' && option != 'R' && option != 'N') {
+                    throw error("Unknown option");
+                }
+                token.append('!').append((char) option);
+                regex = option == 'R';
+                numeric = option == 'N';
+            }
+            if (numeric) {
+                while (isNumberChar(peek())) {
+                    token.append((char) read());
+                }
+                if (read() != ' ') {
+                    throw error("Expected ' ' after tolerance");
+                }
+                token.append(' ');
+            }
+            while ((c = read()) != '"') {
+                if (c == '\r') {
+                    if (peek() == '\n') {
+                        read();
+                    }
+                    c = '\n';
+                }
+                if (c == '\n') {
+                    line++;
+                } else if (c == -1) {
+                    throw error("Unterminated expectation");
+                } else if (regex && c == '\\') {
+                    token.append((char) c);
+                    c = read();
+                    if (c == -1 || c == '\n' || c == '\r') {
+                        throw error("Unterminated escape in expectation");
+                    }
+                } else if (regex ? c < ' ' && c != '\t' : !(numeric ? isNumberChar(c) : isExpectationChar(c))) {
+                    throw error("Illegal character in expectation");
+                }
+                token.append((char) c);
+            }
+            if (regex || numeric) {
+                try {
+                    Expectation.compile(token.toString());
+                } catch (IllegalArgumentException e) {
+                    throw error(e.getMessage());
+                }
+            }
+            return token.toString();
+        }
+        while (c != -1 && !isBlank(c) && c != '\n' && c != '\r') {
+            token.append((char) read());
+            c = peek();
+        }
+        final String literal = token.toString();
+        if (!literal.equals("null") && !literal.equals("00err") && !literal.equals("true")
+                && !literal.equals("false") && !isNumber(literal)) {
+            throw error("Illegal expectation '" + literal + "'");
+        }
+        return literal;
+    }
+
+    private void readSeparator() throws IOException, ParseException {
+        if (!isBlank(read()) || read() != ':' || !isBlank(read())) {
+            throw error("Expected ' : ' between expectation and input");
+        }
+    }
+
+    private String readInput() throws IOException, ParseException {
+        if (read() != '"') {
+            throw error("Expected '\"' in front of input");
+        }
+        token.setLength(0);
+        int c;
+        while ((c = read()) != '"') {
+            if (!isInputChar(c)) {
+                throw error("Illegal character in input");
+            }
+            token.append((char) c);
+        }
+        if (token.length() == 0) {
+            throw error("Empty input");
+        }
+        return token.toString();
+    }
+
+    private void endOfLine() throws IOException, ParseException {
+        final int c = read();
+        if (c == '\r') {
+            if (peek() == '\n') {
+                read();
+            }
+        } else if (c != '\n' && c != -1) {
+            throw error("Unexpected character '" + (char) c + "'");
+        }
+        line++;
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != '\n' && c != '\r' && c != -1);
+        if (c == '\r' && peek() == '\n') {
+            read();
+        }
+        line++;
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos];
+    }
+
+    private int read() throws IOException {
+        final int c = peek();
+        if (c != -1) {
+            pos++;
+        }
+        return c;
+    }
+
+    private ParseException error(final String message) {
+        return new ParseException("line " + line + ": " + message, line);
+    }
+
+    private static boolean isWordChar(final int c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_';
+    }
+
+    private static boolean isBlank(final int c) {
+        return c == ' ' || c == '\t' || c == '\u000B' || c == '\f';
+    }
+
+    private static boolean isArgumentChar(final int c) {
+        return isWordChar(c) || c == '\\' || c == '/' || c == ':' || c == '-' || c == '.';
+    }
+
+    private static boolean isExpectationChar(final int c) {
+        return isWordChar(c) || isBlank(c) || c == ';' || c == '-';
+    }
+
+    private static boolean isNumberChar(final int c) {
+        return c >= '0' && c <= '9' || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E';
+    }
+
+    private static boolean isInputChar(final int c) {
+        return isWordChar(c) || isBlank(c) || c == ';';
+    }
+
+    private static boolean isNumber(final String literal) {
+        int i = literal.startsWith("-") ? 1 : 0;
+        final int start = i;
+        while (i < literal.length() && literal.charAt(i) >= '0' && literal.charAt(i) <= '9') {
+            i++;
+        }
+        if (i == start) {
+            return false;
+        }
+        if (i < literal.length() && literal.charAt(i) == '.') {
+            final int fraction = ++i;
+            while (i < literal.length() && literal.charAt(i) >= '0' && literal.charAt(i) <= '9') {
+                i++;
+            }
+            if (i == fraction) {
+                return false;
+            }
+        }
+        return i == literal.length();
+    }
+
+    private static TestFile readCompiled(final DataInputStream cache) throws IOException {
+        final int argumentCount = cache.readInt();
+        String[] args = null;
+        if (argumentCount >= 0) {
+            args = new String[argumentCount];
+            for (int i = 0; i < argumentCount; i++) {
+                args[i] = BinaryIO.readString(cache);
+            }
+        }
+        final long fileBudget = cache.readLong();
+        final MemoryBudget memoryBudget = new MemoryBudget(cache.readLong(), cache.readLong());
+        final int count = cache.readInt();
+        final boolean hasBudgets = cache.readBoolean();
+        final List<String> inputs = new ArrayList<>(count);
+        final List<String> expectations = new ArrayList<>(count);
+        final long[] budgets = hasBudgets ? new long[count] : null;
+        for (int i = 0; i < count; i++) {
+            inputs.add(BinaryIO.readString(cache));
+            expectations.add(BinaryIO.readString(cache));
+            if (hasBudgets) {
+                budgets[i] = cache.readLong();
+            }
+        }
+        return new TestFile(args, inputs, expectations, budgets, fileBudget, memoryBudget);
+    }
+
+    private static void writeCompiled(final TestFile file, final File compiled, final String path,
+                                      final long modified, final long size, final long checksum,
+                                      final long compiledAt) throws IOException {
+        final File dir = compiled.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Creating " + dir + " failed!");
+        }
+        final File temp = File.createTempFile(compiled.getName(), ".tmp", dir);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            BinaryIO.writeString(out, path);
+            out.writeLong(modified);
+            out.writeLong(size);
+            out.writeLong(checksum);
+            out.writeLong(compiledAt);
+            final String[] args = file.getArguments();
+            out.writeInt(args != null ? args.length : -1);
+            if (args != null) {
+                for (final String arg : args) {
+                    BinaryIO.writeString(out, arg);
+                }
+            }
+            out.writeLong(file.getFileBudget());
+            out.writeLong(file.getMemoryBudget().getAllocation());
+            out.writeLong(file.getMemoryBudget().getHeap());
+            out.writeInt(file.getInputs().size());
+            final long[] budgets = file.getBudgets();
+            out.writeBoolean(budgets != null);
+            for (int i = 0; i < file.getInputs().size(); i++) {
+                BinaryIO.writeString(out, file.getInputs().get(i));
+                BinaryIO.writeString(out, file.getExpectations().get(i));
+                if (budgets != null) {
+                    out.writeLong(budgets[i]);
+                }
+            }
+        }
+        try {
+            Files.move(temp.toPath(), compiled.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), compiled.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
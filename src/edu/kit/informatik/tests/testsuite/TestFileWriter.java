@@ -0,0 +1,108 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Writes test files generated by the test suite, e.g. found by fuzzing, in the
+ * format read by {@link TestFileParser}.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+final class TestFileWriter {
+
+    private static final String ERROR_OUTPUT = "Error";
+    private static final String ERROR_EXPECTATION = "00err";
+
+    private TestFileWriter() {
+    }
+
+    /**
+     * Creates the expectation of a case from the output of a reference
+     * implementation. Error messages are expected as '00err', outputs with
+     * characters a plain expectation can't hold as escaped regular
+     * expression.
+     *
+     * @param actual Output without trailing line separator.
+     * @return Expectation like it is stored in a TestFile or null if the
+     * output can't be expected, e.g. because it contains control characters.
+     */
+    static String expectation(final String actual) {
+        final String output = actual.replace(System.lineSeparator(), "\n");
+        if (output.startsWith(ERROR_OUTPUT)) {
+            return ERROR_EXPECTATION;
+        }
+        boolean plain = !output.startsWith("!");
+        for (int i = 0; i < output.length(); i++) {
+            final char c = output.charAt(i);
+            if (c < ' ' && c != '\t' && c != '\n') {
+                return null;
+            }
+            plain &= isPlain(c);
+        }
+        if (plain) {
+            return output;
+        }
+        final StringBuilder regex = new StringBuilder("!R");
+        for (int i = 0; i < output.length(); i++) {
+            final char c = output.charAt(i);
+            if (c < 0x80 && !isPlain(c) && c != '\n') {
+                regex.append('\\');
+            }
+            regex.append(c);
+        }
+        return regex.toString();
+    }
+
+    /**
+     * Writes a test file.
+     *
+     * @param file   Content to write.
+     * @param target File to write to.
+     * @throws IOException Will be thrown if writing failed.
+     */
+    static void write(final TestFile file, final File target) throws IOException {
+        final char separator = '\n';
+        final StringBuilder content = new StringBuilder();
+        final String[] arguments = file.getArguments();
+        if (arguments != null && arguments.length > 0) {
+            content.append('<');
+            for (int i = 0; i < arguments.length; i++) {
+                content.append(i > 0 ? ";\"" : "\"").append(arguments[i]).append('"');
+            }
+            content.append('>').append(separator);
+        }
+        if (file.getFileBudget() > 0) {
+            content.append("@budget ").append(file.getFileBudget()).append("ns").append(separator);
+        }
+        if (file.getMemoryBudget().getAllocation() > 0) {
+            content.append("@alloc ").append(file.getMemoryBudget().getAllocation()).append('B').append(separator);
+        }
+        if (file.getMemoryBudget().getHeap() > 0) {
+            content.append("@heap ").append(file.getMemoryBudget().getHeap()).append('B').append(separator);
+        }
+        final List<String> inputs = file.getInputs();
+        final List<String> expectations = file.getExpectations();
+        final long[] budgets = file.getBudgets();
+        for (int i = 0; i < inputs.size(); i++) {
+            final String expectation = expectations.get(i);
+            content.append(expectation.equals(ERROR_EXPECTATION) ? expectation : '"' + expectation + '"')
+                    .append(" : \"").append(inputs.get(i)).append('"');
+            if (budgets != null && budgets[i] > 0) {
+                content.append(" @").append(budgets[i]).append("ns");
+            }
+            content.append(separator);
+        }
+        Files.write(target.toPath(), content.toString().replace("\n", System.lineSeparator())
+                .getBytes(Charset.defaultCharset()));
+    }
+
+    private static boolean isPlain(final char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == ' '
+                || c == '\t' || c == ';' || c == '-' || c == '\n';
+    }
+}
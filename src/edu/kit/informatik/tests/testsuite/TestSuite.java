@@ -2,7 +2,6 @@ package edu.kit.informatik.tests.testsuite;
 
 import edu.kit.informatik.Terminal;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
@@ -10,14 +9,11 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.LinkedList;
-import java.util.List;
+import java.text.ParseException;
+import java.util.HashSet;
 import java.util.Properties;
-import java.util.Queue;
 import java.util.Scanner;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
 
 /**
  * Testing class providing a text file with command inputs instead of manual
@@ -27,6 +23,12 @@ import java.util.regex.Pattern;
  * command-line-arguments of testing file.</li>
  * <li>- '#' at the start of a line marks a line-comment.</li>
  * <li>- "&lt;expectedOutput&gt; : \"&lt;input&gt;\""</li>
+ * <li>- "&lt;expectedOutput&gt; : \"&lt;input&gt;\" @5ms" fails the case if
+ * its output takes longer than 5ms (units ns, us, ms and s).</li>
+ * <li>- '@budget 5ms' in front of all cases sets the budget of every case
+ * without an own budget.</li>
+ * <li>- "!C", "!U", "!R" and "!N&lt;tolerance&gt; " in front of an
+ * expectation select how output is matched, see {@link Expectation}.</li>
  * </ul>
  *
  * @author Moritz Hepp
@@ -44,71 +46,116 @@ public final class TestSuite {
      */
     public static final String DEF_PREF = "Test: ";
 
-    private static final String PARAM_REGEX = "(?:!C)?";
-
-    private static final String LINE_REGEX
-            = "(null|00err|true|false|\"" + PARAM_REGEX
-            + "[\\w\\s;\\-]*\"|-?[\\d]+|-?[\\d]+\\.[\\d]+)\\s:\\s\"([\\w\\s;]+)\"";
-    private static final String CMD_LINE_ARGS_REGEX = "\"[\\w\\\\/:_\\-\\.]+\"(;\"[\\w\\\\/:_\\-\\.]+\")*";
-
-    private static final String CMD_LINE_ARGS = "$CMD_LINE_ARGS$";
-
-    private static ExpectionInputStream sysIn;
-    private static ExpectionOutputStream sysOut;
-
-    private static File[] files;
-    private static Class<?> cl;
-    private static File logDir;
-
-    private static final Queue<Thread> THREAD_QUEUE = new ConcurrentLinkedQueue<>();
-
     private TestSuite() {
     }
 
     /**
      * Test main to perform the tests located at $ProjectRoot/tests and named
-     * *.test.
+     * *.test. Missing entries of TestSuite.config are asked for.
+     *
+     * Arguments like "Shard=2/4" override the entries of TestSuite.config for
+     * this run only. "Merge=&lt;dir&gt;" merges the results of all shards
+     * stored in dir instead of testing.
      *
      * @param args Command line arguments.
      */
     public static void main(final String... args) {
-        init();
-        for (final File f : files) {
-            final Class<?> clazz = cl;
-            final List<String> fileLines = readTestFile(f.getPath());
-            if (fileLines != null) {
-                Thread thread = new Thread(() -> {
-                    final File logFile = new File(
-                            logDir.getAbsoluteFile() + "/" + f.getName().replace(".test", "Test.log"));
-                    System.out.println(DEF_PREF + "## file: " + f.getName());
-
-                    List<String> inputs = new LinkedList<>();
-                    List<String> expectations = new LinkedList<>();
-
-                    convert(fileLines, inputs, expectations);
+        for (final String arg : args) {
+            if (arg.startsWith("Merge=")) {
+                try {
+                    SuiteRunner.merge(new File(arg.substring("Merge=".length())), System.out);
+                } catch (IOException e) {
+                    System.err.println(ERR_PREF + e.getMessage());
+                    System.exit(-1);
+                }
+                return;
+            }
+            if (arg.startsWith("Compare=")) {
+                compare(arg.substring("Compare=".length()), args);
+                return;
+            }
+        }
+        final Properties prop = init(args);
+        final SuiteConfig config = configure(prop);
+        if (prop.containsKey("Minimize")) {
+            minimize(prop, config);
+            return;
+        }
+        if (prop.containsKey("Fuzz")) {
+            fuzz(prop, config);
+            return;
+        }
+        boolean watch = Boolean.parseBoolean(prop.getProperty("Watch", "false").trim());
+        if (config.getShard() != null && watch) {
+            System.err.println(ERR_PREF + "Watch doesn't support shards, watching is disabled!");
+            watch = false;
+        }
+        if (watch) {
+            config.setIsolation(true);
+        }
+        try (SuiteRunner runner = new SuiteRunner(config)) {
+            final SuiteResult result = runner.run();
+            if (watch) {
+                runner.watch(result);
+            }
+        } catch (IOException e) {
+            System.err.println(ERR_PREF + e.getMessage());
+            System.exit(-1);
+        }
+    }
 
-                    testFile(clazz, inputs, expectations, logFile);
-                    if (!THREAD_QUEUE.isEmpty())
-                        THREAD_QUEUE.poll().start();
-                });
-                thread.setDaemon(false);
-                THREAD_QUEUE.add(thread);
-            } else
-                System.err.println(ERR_PREF + "Bad formatted file: " + f.getName());
-        }
-        if (!THREAD_QUEUE.isEmpty())
-            THREAD_QUEUE.poll().start();
-        else
-            System.err.println(ERR_PREF + "Threading error: Thread queue is empty!");
+    /**
+     * Compares the latest run of a history with the runs before it, as many
+     * as a HistoryWindow argument sets.
+     *
+     * @param path History or directory containing it.
+     * @param args Command line arguments.
+     */
+    private static void compare(final String path, final String... args) {
+        int window = RunHistory.DEFAULT_WINDOW;
+        for (final String arg : args) {
+            if (arg.startsWith("HistoryWindow=")) {
+                try {
+                    window = Integer.parseInt(arg.substring("HistoryWindow=".length()).trim());
+                } catch (NumberFormatException e) {
+                    System.err.println(ERR_PREF + "HistoryWindow has to be a number!");
+                }
+            }
+        }
+        try {
+            SuiteRunner.compare(new File(path), Math.max(1, window), System.out);
+        } catch (IOException e) {
+            System.err.println(ERR_PREF + e.getMessage());
+            System.exit(-1);
+        }
     }
 
-    private static void init() {
+    /**
+     * Reads TestSuite.config, applies the overrides of the arguments and asks
+     * for a missing or invalid tests directory and class. The config is
+     * stored again without the overrides.
+     *
+     * @param args Command line arguments like "Key=Value".
+     * @return Entries of TestSuite.config with overrides applied.
+     */
+    private static Properties init(final String... args) {
         final Scanner scan = new Scanner(System.in);
-        Properties prop = new Properties();
+        final Properties prop = new Properties();
         try {
             prop.load(new FileReader("TestSuite.config"));
         } catch (IOException ignored) {
         }
+        final Properties stored = (Properties) prop.clone();
+        final Set<String> overridden = new HashSet<>();
+        for (final String arg : args) {
+            final int split = arg.indexOf('=');
+            if (split > 0) {
+                prop.setProperty(arg.substring(0, split).trim(), arg.substring(split + 1).trim());
+                overridden.add(arg.substring(0, split).trim());
+            } else {
+                System.err.println(ERR_PREF + "Ignoring argument '" + arg + "', expected <key>=<value>!");
+            }
+        }
         File testsDir = null;
         if (prop.containsKey("TestSources"))
             testsDir = new File(prop.getProperty("TestSources"));
@@ -121,23 +168,15 @@ public final class TestSuite {
                 testsDir = null;
             } else {
                 prop.setProperty("TestSources", testsDir.getPath());
+                stored.setProperty("TestSources", testsDir.getPath());
             }
         }
-        files = testsDir.listFiles((dir, name) -> name.endsWith(".test"));
-        if (files == null || files.length == 0) {
-            System.err.println(ERR_PREF + "Tests directory doesn't contain .test-Files!");
-            System.exit(-1);
-        }
-        logDir = new File(testsDir.getPath() + "/logs/");
-        if (!logDir.exists())
-            if (!logDir.mkdir())
-                System.err.println(ERR_PREF + "Failed to create log-directory.");
-        cl = null;
+        Class<?> cl = null;
         String className;
         if (prop.containsKey("TestClass")) {
             try {
                 className = prop.getProperty("TestClass");
-                cl = Terminal.class.getClassLoader().loadClass("edu.kit.informatik." + className);
+                cl = loadTestClass(className);
             } catch (ClassNotFoundException e) {
                 e.printStackTrace();
                 cl = null;
@@ -147,174 +186,378 @@ public final class TestSuite {
             try {
                 System.out.print("Name of testing class: ");
                 className = scan.nextLine();
-                cl = Terminal.class.getClassLoader().loadClass("edu.kit.informatik." + className);
+                cl = loadTestClass(className);
                 prop.setProperty("TestClass", className);
+                stored.setProperty("TestClass", className);
             } catch (ClassNotFoundException e) {
                 System.err.println(ERR_PREF + e.getMessage());
                 cl = null;
             }
         }
         try {
-            prop.store(new FileOutputStream("TestSuite.config"), "TestSuite runtime config");
+            stored.store(new FileOutputStream("TestSuite.config"), "TestSuite runtime config");
         } catch (IOException e) {
             System.err.println(ERR_PREF + "Failed storing properties!");
         }
+        return prop;
     }
 
     /**
-     * Performs the tests one file is representing.
+     * Creates the configuration of a runner from the entries of
+     * TestSuite.config. Invalid entries are reported and keep their defaults.
+     * LogFlush is applied to all logs of this JVM.
      *
-     * @param testClass    Class to be tested.
-     * @param inputs       Inputs with Command line args.
-     * @param expectations Expected outputs.
-     * @param logFile      File to store the output of this test.
+     * @param prop Entries with valid TestSources and TestClass.
+     * @return Configuration of a runner.
      */
-    public static void testFile(final Class<?> testClass, final List<String> inputs,
-                                final List<String> expectations, final File logFile) {
-        if (inputs != null && expectations != null && !inputs.isEmpty() && !expectations.isEmpty()) {
+    private static SuiteConfig configure(final Properties prop) {
+        final SuiteConfig config;
+        try {
+            config = new SuiteConfig(new File(prop.getProperty("TestSources")),
+                    loadTestClass(prop.getProperty("TestClass")));
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        if (prop.containsKey("Parallelism")) {
             try {
-                final Method main = testClass.getMethod("main", String[].class);
-
-                String[] arguments = null;
-                if (inputs.get(0).startsWith(CMD_LINE_ARGS)) {
-                    String cmdLineArgs = inputs.get(0).replace(CMD_LINE_ARGS, "");
-
-                    arguments = cmdLineArgs.split(";");
-                    inputs.remove(0);
-                }
-                initInOutput(inputs, expectations, logFile);
-
-                main.invoke(null, (Object) arguments);
+                config.setParallelism(Integer.parseInt(prop.getProperty("Parallelism").trim()));
+            } catch (NumberFormatException e) {
+                System.err.println(ERR_PREF + "Parallelism has to be a number!");
+            }
+        }
+        config.setIsolation(Boolean.parseBoolean(prop.getProperty("Isolation", "false").trim()));
+        config.setFork(Boolean.parseBoolean(prop.getProperty("Fork", "false").trim()));
+        config.setIncremental(Boolean.parseBoolean(prop.getProperty("Incremental", "false").trim()));
+        config.setStreaming(Boolean.parseBoolean(prop.getProperty("Streaming", "false").trim()));
+        config.setHistory(Boolean.parseBoolean(prop.getProperty("History", "true").trim()));
+        if (prop.containsKey("HistoryWindow")) {
+            try {
+                config.setHistoryWindow(Integer.parseInt(prop.getProperty("HistoryWindow").trim()));
+            } catch (NumberFormatException e) {
+                System.err.println(ERR_PREF + "HistoryWindow has to be a number!");
+            }
+        }
+        if (prop.containsKey("Shard")) {
+            try {
+                config.setShard(ShardPlan.parse(prop.getProperty("Shard").trim()));
+            } catch (IllegalArgumentException e) {
+                System.err.println(ERR_PREF + "Shard has to be <index>/<count>: " + e.getMessage());
+            }
+        }
+        if (prop.containsKey("LogFlush")) {
+            try {
+                AsyncLog.setFlushInterval(AsyncLog.parseFlushPolicy(prop.getProperty("LogFlush").trim()));
+            } catch (IllegalArgumentException e) {
+                System.err.println(ERR_PREF + "LogFlush has to be always, close or a duration: " + e.getMessage());
+            }
+        }
+        try {
+            config.setWatchdog(new Watchdog(
+                    TestFileParser.toNanos(prop.getProperty("CommandTimeout", "0s").trim()),
+                    TestFileParser.toNanos(prop.getProperty("FileTimeout", "0s").trim())));
+        } catch (IllegalArgumentException e) {
+            System.err.println(ERR_PREF + "CommandTimeout and FileTimeout have to be durations: "
+                    + e.getMessage());
+        }
+        return config;
+    }
 
-                resetInOutputSettings();
-            } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException | IOException e) {
-                System.err.println(ERR_PREF + "Something went wrong while testing!");
-                e.printStackTrace();
+    /**
+     * Fuzzes the tested class against the reference class named by the Fuzz
+     * entry.
+     *
+     * @param prop   Entries of TestSuite.config with overrides applied.
+     * @param config Configuration of the tested class.
+     */
+    private static void fuzz(final Properties prop, final SuiteConfig config) {
+        final Fuzzer fuzzer;
+        try {
+            fuzzer = new Fuzzer(config, loadTestClass(prop.getProperty("Fuzz").trim()));
+        } catch (ClassNotFoundException e) {
+            System.err.println(ERR_PREF + "Fuzz has to name the reference class: " + e.getMessage());
+            System.exit(-1);
+            return;
+        }
+        try {
+            fuzzer.setCommands(Long.parseLong(prop.getProperty("FuzzCommands", "1000000").trim()));
+            fuzzer.setLength(Integer.parseInt(prop.getProperty("FuzzLength", "300").trim()));
+            if (prop.containsKey("FuzzSeed")) {
+                fuzzer.setSeed(Long.parseLong(prop.getProperty("FuzzSeed").trim()));
             }
-        } else {
-            System.err.println(ERR_PREF + "Empty test-file!");
+        } catch (NumberFormatException e) {
+            System.err.println(ERR_PREF + "FuzzCommands, FuzzLength and FuzzSeed have to be numbers!");
+        }
+        try {
+            fuzzer.run();
+        } catch (IOException e) {
+            System.err.println(ERR_PREF + e.getMessage());
+            System.exit(-1);
         }
     }
 
-    private static void resetInOutputSettings() {
-        final int count = sysOut.getCount();
-        if (count < sysOut.getExpectationSize()) {
-            System.err
-                    .println(ERR_PREF + "Expected output count: " + count + ", actual: " + sysOut.getExpectationSize());
-        } else if (sysIn.isExpecting()) {
-            System.err.println(ERR_PREF + "Expected input!");
-        } else {
-            System.setOut(sysOut.getNextStream());
+    /**
+     * Minimizes the failing file named by the Minimize entry, expecting the
+     * outputs of the reference class named by the Fuzz entry if there is one.
+     *
+     * @param prop   Entries of TestSuite.config with overrides applied.
+     * @param config Configuration of the tested class.
+     */
+    private static void minimize(final Properties prop, final SuiteConfig config) {
+        Class<?> reference = null;
+        if (prop.containsKey("Fuzz")) {
             try {
-                sysOut.close();
-                sysOut = null;
-                sysIn.close();
-                sysIn = null;
-            } catch (IOException e) {
-                e.printStackTrace();
+                reference = loadTestClass(prop.getProperty("Fuzz").trim());
+            } catch (ClassNotFoundException e) {
+                System.err.println(ERR_PREF + "Fuzz has to name the reference class: " + e.getMessage());
+                System.exit(-1);
+                return;
             }
         }
+        File testFile = new File(prop.getProperty("Minimize").trim());
+        if (!testFile.isFile()) {
+            testFile = new File(config.getTestsDir(), testFile.getPath());
+        }
+        try {
+            new Minimizer(config, reference).minimize(testFile);
+        } catch (IOException e) {
+            System.err.println(ERR_PREF + e.getMessage());
+            System.exit(-1);
+        }
     }
 
-    private static <E> void initInOutput(final List<String> inputs,
-                                         final List<String> expectations,
-                                         final File logFile) throws IOException {
-        TestSuite.sysOut = new ExpectionOutputStream(expectations, System.out, logFile);
-        TestSuite.sysIn = new ExpectionInputStream(inputs);
+    private static Class<?> loadTestClass(final String name) throws ClassNotFoundException {
+        return Terminal.class.getClassLoader().loadClass("edu.kit.informatik." + name);
+    }
 
+    /**
+     * Reads a test file and performs its tests.
+     *
+     * @param testClass Class to be tested.
+     * @param isolate   true, if the class should be loaded again in an
+     *                  IsolatingClassLoader.
+     * @param stream    true, if the cases should be read while testing
+     *                  instead of loading the whole file first.
+     * @param watchdog  Watchdog with the deadlines of the file.
+     * @param testFile  File containing the tests.
+     * @param logFile   File to store the output of this test.
+     * @return Result of the file.
+     */
+    static FileResult runFile(final Class<?> testClass, final boolean isolate, final boolean stream,
+                              final Watchdog watchdog, final File testFile, final File logFile) {
+        final CaseSource cases;
         try {
-            sysIn.connect(sysOut);
-        } catch (final IOException e) {
-            System.err.println(ERR_PREF + e.getMessage());
-            System.exit(-1);
-            return;
+            cases = stream ? new CaseStream(testFile)
+                    : TestFileParser.load(testFile, new File(logFile.getParentFile(), "compiled")).cases();
+        } catch (ParseException e) {
+            return error(testFile.getName(), "Bad formatted file: " + testFile.getName() + " (" + e.getMessage() + ")");
+        } catch (IOException e) {
+            return error(testFile.getName(), "Something went wrong while reading test File: " + e.getMessage());
+        }
+        final Class<?> clazz;
+        try {
+            clazz = isolate ? IsolatingClassLoader.isolate(testClass) : testClass;
+        } catch (ClassNotFoundException e) {
+            close(cases);
+            return error(testFile.getName(), "Failed isolating class: " + e.getMessage());
         }
+        return testFile(clazz, testFile.getName(), cases, logFile, watchdog);
+    }
 
-        System.setOut(new PrintStream(TestSuite.sysOut));
-        System.setIn(TestSuite.sysIn);
+    /**
+     * Performs the tests one file is representing. System.in and System.out
+     * are only redirected for the calling thread, so multiple files can be
+     * tested at once. The first failure aborts the file.
+     *
+     * @param testClass Class to be tested.
+     * @param name      Name of the file.
+     * @param test      Command line args, inputs and expected outputs.
+     * @param logFile   File to store the output of this test.
+     * @return Result with all recorded failures.
+     */
+    public static FileResult testFile(final Class<?> testClass, final String name, final TestFile test,
+                                      final File logFile) {
+        return testFile(testClass, name, test.cases(), logFile);
     }
 
-    private static List<String> readTestFile(final String path) {
-        List<String> lines = null;
-        if (path != null) {
-            File testFile;
-            if (path.matches("[\\w]+")) {
-                testFile = new File(System.getProperty("user.dir") + File.pathSeparatorChar + path);
-            } else {
-                testFile = new File(path);
+    /**
+     * Performs the tests of cases read from a source while testing, waiting as
+     * long as the program runs. The source is closed afterwards.
+     *
+     * @param testClass Class to be tested.
+     * @param name      Name of the file.
+     * @param cases     Command line args and cases of the file.
+     * @param logFile   File to store the output of this test.
+     * @return Result with all recorded failures.
+     */
+    public static FileResult testFile(final Class<?> testClass, final String name, final CaseSource cases,
+                                      final File logFile) {
+        return testFile(testClass, name, cases, logFile, Watchdog.UNLIMITED);
+    }
+
+    /**
+     * Performs the tests of cases read from a source while testing. The source
+     * is closed afterwards. The program runs in an own thread group watched by
+     * the {@link Watchdog}, so a program missing a deadline fails the file
+     * without blocking the caller.
+     *
+     * @param testClass Class to be tested.
+     * @param name      Name of the file.
+     * @param cases     Command line args and cases of the file.
+     * @param logFile   File to store the output of this test.
+     * @param watchdog  Watchdog with the deadlines of the file.
+     * @return Result with all recorded failures.
+     */
+    public static FileResult testFile(final Class<?> testClass, final String name, final CaseSource cases,
+                                      final File logFile, final Watchdog watchdog) {
+        final long start = System.nanoTime();
+        final Method main;
+        final CommandChannel channel = new CommandChannel(cases);
+        final ExpectionOutputStream sysOut;
+        try {
+            if (cases.get(0) == null) {
+                close(cases);
+                return error(name, "Empty test-file!");
             }
-            if (testFile.exists()) {
-                try {
-                    final BufferedReader reader = new BufferedReader(new FileReader(testFile));
-                    lines = new LinkedList<>();
-                    while (reader.ready()) {
-                        String nLine = reader.readLine();
-                        if (nLine != null) {
-                            // if output is multiple lines long
-                            if (nLine.matches("\"[\\w\\s\\-]*") && reader.ready()) {
-                                String next;
-                                boolean cont = true;
-                                while (cont) {
-                                    next = reader.readLine();
-                                    nLine += "\n" + next;
-                                    if (next.matches("[\\w\\s\\-;]*\"\\s:\\s\"[\\w\\s;]+\"")) {
-                                        cont = false;
-                                    } else if (!reader.ready()) {
-                                        nLine = "";
-                                        cont = false;
-                                    }
-                                }
-                            }
-                            if (nLine.matches(LINE_REGEX)) {
-                                lines.add(nLine);
-                            } else if (nLine.matches("<" + CMD_LINE_ARGS_REGEX + ">")) {
-                                if (lines.size() == 0) {
-                                    final String args = nLine.replace("<", "").replace(">", "");
-                                    lines.add(args);
-                                } else {
-                                    lines = null;
-                                    break;
-                                }
-                            } else if (!nLine.matches("#.*") && !nLine.isEmpty()) {
-                                lines = null;
-                                break;
-                            }
-                        }
-                    }
-                } catch (final IOException e) {
-                    System.err.println(ERR_PREF + "Something went wrong while reading test File: " + e.getMessage());
-                }
+            main = testClass.getMethod("main", String[].class);
+            sysOut = new ExpectionOutputStream(channel, StreamRouter.getOriginalOut(), logFile);
+        } catch (ParseException e) {
+            close(cases);
+            return error(name, "Bad formatted file: " + name + " (" + e.getMessage() + ")");
+        } catch (NoSuchMethodException | IOException e) {
+            close(cases);
+            return error(name, "Something went wrong while testing: " + e);
+        }
+        final ExpectionInputStream sysIn = new ExpectionInputStream(channel, sysOut);
+        StreamRouter.bind(sysIn, new PrintStream(sysOut));
+        final ThreadGroup group = Watchdog.group("TestSuite-" + name);
+        final Thread program = new Thread(group, () -> invoke(main, cases.getArguments(), channel),
+                "TestSuite-program-" + name);
+        program.setDaemon(true);
+        program.setContextClassLoader(testClass.getClassLoader());
+        ResourceUsage usage = ResourceUsage.NONE;
+        channel.getResources().start();
+        try {
+            program.start();
+            final String expired = watchdog.await(program, channel, start);
+            if (expired != null) {
+                timeout(name, program, group, channel, sysOut, expired);
             }
+        } catch (InterruptedException e) {
+            channel.fail(new TestFailure("Interrupted while testing"));
+            Thread.currentThread().interrupt();
+        } finally {
+            usage = measure(channel, sysOut);
+            resetInOutputSettings(channel, sysIn, sysOut);
+            close(cases);
         }
-        return lines;
+        return new FileResult(name, channel.getCaseCount(), channel.getOutputCount(), System.nanoTime() - start,
+                channel.getFailures(), usage, channel.getCommandLatencies());
     }
 
-    private static void convert(final List<String> lines,
-                                final List<String> inputs, final List<String> expections) {
-        if (lines != null) {
-            //Problem with same command
-            for (final String line : lines) {
-                if (line != null) {
-                    if (line.matches(CMD_LINE_ARGS_REGEX)) {
-                        String cmdLineArgs = line.replace("\"", "");
-                        inputs.add(CMD_LINE_ARGS + cmdLineArgs);
-                    } else {
-                        final Pattern pat = Pattern.compile(LINE_REGEX);
-                        final Matcher match = pat.matcher(line);
-                        if (match.matches() && (match.groupCount() == 2 || match.groupCount() == 3)) {
-                            /*
-                            group(1) == expected output
-                            group() == input
-                             */
-                            final String expected = match.group(1).replace("\"", "");
-                            final String input = match.group(2);
+    /**
+     * Finishes measuring the resources of a file, logs them and checks the
+     * memory budgets of the file.
+     */
+    private static ResourceUsage measure(final CommandChannel channel, final ExpectionOutputStream sysOut) {
+        final ResourceUsage usage = channel.getResources().finish();
+        try {
+            sysOut.note("resources " + usage);
+        } catch (IOException e) {
+            System.err.println(ERR_PREF + "Failed logging resources: " + e.getMessage());
+        }
+        final MemoryBudget budget = channel.getMemoryBudget();
+        if (!channel.isAborted() && budget.getAllocation() > 0 && usage.getAllocated() > budget.getAllocation()) {
+            channel.fail(new TestFailure("Allocated " + ResourceUsage.format(usage.getAllocated()) + ", budget: "
+                    + ResourceUsage.format(budget.getAllocation())));
+        }
+        if (!channel.isAborted() && budget.getHeap() > 0 && usage.getPeakHeap() > budget.getHeap()) {
+            channel.fail(new TestFailure("Peak heap " + ResourceUsage.format(usage.getPeakHeap()) + ", budget: "
+                    + ResourceUsage.format(budget.getHeap())));
+        }
+        return usage;
+    }
 
-                            expections.add(expected);
-                            inputs.add(input);
-                        }
-                    }
-                }
+    private static void invoke(final Method main, final String[] arguments, final CommandChannel channel) {
+        channel.getResources().programStarted();
+        try {
+            main.invoke(null, (Object) arguments);
+        } catch (InvocationTargetException e) {
+            if (!(e.getCause() instanceof TestAbortedError) && !channel.isAborted()) {
+                System.err.println(ERR_PREF + "Tested program threw " + e.getCause());
+                e.getCause().printStackTrace();
+                channel.fail(new TestFailure(channel.getOutputCount() + 1, null, null, null,
+                        "Tested program threw " + e.getCause()));
+            }
+        } catch (IllegalAccessException e) {
+            channel.fail(new TestFailure("Something went wrong while testing: " + e));
+        } finally {
+            channel.getResources().programEnded();
+        }
+    }
+
+    /**
+     * Fails the current case of a program which missed a deadline. The
+     * threads of the program are dumped into the log and stopped as far as
+     * possible.
+     */
+    private static void timeout(final String name, final Thread program, final ThreadGroup group,
+                                final CommandChannel channel, final ExpectionOutputStream sysOut,
+                                final String expired) throws InterruptedException {
+        final StackTraceElement frame = Watchdog.programFrame(program);
+        final String message = frame != null ? expired + " at " + frame : expired;
+        final String dump = Watchdog.dump(group);
+        channel.abort(null, null, message);
+        System.err.println(ERR_PREF + name + ": " + message + System.lineSeparator() + dump);
+        try {
+            sysOut.note("thread dump after \"" + message + "\"" + System.lineSeparator() + dump);
+        } catch (IOException e) {
+            System.err.println(ERR_PREF + "Failed logging thread dump: " + e.getMessage());
+        }
+        if (!Watchdog.stop(group)) {
+            System.err.println(ERR_PREF + "Threads of " + name + " don't stop, they keep running in the "
+                    + "background!");
+        }
+    }
+
+    private static void close(final CaseSource cases) {
+        try {
+            cases.close();
+        } catch (IOException e) {
+            System.err.println(ERR_PREF + "Failed closing test file: " + e.getMessage());
+        }
+    }
+
+    private static FileResult error(final String name, final String message) {
+        System.err.println(ERR_PREF + message);
+        return FileResult.error(name, message);
+    }
+
+    private static void resetInOutputSettings(final CommandChannel channel, final ExpectionInputStream sysIn,
+                                              final ExpectionOutputStream sysOut) {
+        StreamRouter.unbind();
+        try {
+            sysOut.finish();
+        } catch (TestAbortedError ignored) {
+            // recorded by the channel
+        }
+        if (!channel.isAborted()) {
+            final int count = sysOut.getCount();
+            if (sysOut.isExpecting()) {
+                final String expected = channel.isComplete() ? String.valueOf(channel.getCaseCount())
+                        : "at least " + channel.getCaseCount();
+                System.err.println(ERR_PREF + "Expected output count: " + expected + ", actual: " + count);
+                channel.fail(new TestFailure(count + 1, null, null, null, "Program ended after " + count
+                        + " of " + expected + " outputs"));
+            } else if (!channel.isAborted() && sysIn.isExpecting()) {
+                System.err.println(ERR_PREF + "Expected input!");
+                channel.fail(new TestFailure("Program ended without reading \"quit\""));
             }
         }
+        try {
+            sysOut.close();
+            sysIn.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
-}
\ No newline at end of file
+}
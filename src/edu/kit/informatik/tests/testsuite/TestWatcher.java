@@ -0,0 +1,163 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the tests directory, the directories of fixture files and the
+ * bytecode of the tested program. Changes arriving shortly after each other,
+ * e.g. while a compiler writes several class files, are collected into one
+ * {@link Change}.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class TestWatcher implements Closeable {
+
+    private static final long SETTLE_MILLIS = 50;
+
+    private final WatchService service;
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    private final Set<Path> classDirectories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Initialises a watcher of the tests directory and the bytecode.
+     *
+     * @param testsDir Directory containing the .test-Files.
+     * @param classDir Directory of the package edu.kit.informatik or null if
+     *                 the bytecode shouldn't be watched.
+     * @throws IOException Will be thrown if a directory couldn't be watched.
+     */
+    public TestWatcher(final File testsDir, final File classDir) throws IOException {
+        service = FileSystems.getDefault().newWatchService();
+        watch(testsDir);
+        if (classDir != null) {
+            watchClasses(classDir);
+        }
+    }
+
+    /**
+     * Watches the directory containing a file, e.g. a fixture. Watching a
+     * directory twice has no effect.
+     *
+     * @param file File to watch.
+     */
+    public void watchFile(final File file) {
+        final File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !directories.containsValue(dir.toPath().normalize())) {
+            try {
+                watch(dir);
+            } catch (IOException e) {
+                System.err.println(TestSuite.ERR_PREF + "Failed watching " + dir + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void watch(final File dir) throws IOException {
+        final Path path = dir.getAbsoluteFile().toPath().normalize();
+        directories.put(path.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), path);
+    }
+
+    private void watchClasses(final File dir) throws IOException {
+        if (ResultCache.isSuiteDirectory(dir)) {
+            return;
+        }
+        watch(dir);
+        classDirectories.add(dir.getAbsoluteFile().toPath().normalize());
+        final File[] children = dir.listFiles(File::isDirectory);
+        if (children != null) {
+            for (final File child : children) {
+                watchClasses(child);
+            }
+        }
+    }
+
+    /**
+     * Waits for changes.
+     *
+     * @return Changes collected until no more arrived for a short time.
+     * @throws InterruptedException Will be thrown if interrupted while
+     *                              waiting.
+     */
+    public Change take() throws InterruptedException {
+        final Change change = new Change();
+        WatchKey key = service.take();
+        while (key != null) {
+            final Path dir = directories.get(key);
+            for (final WatchEvent<?> event : key.pollEvents()) {
+                if (dir != null && event.kind() != StandardWatchEventKinds.OVERFLOW) {
+                    record(change, dir, dir.resolve((Path) event.context()));
+                } else if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    change.overflow = true;
+                }
+            }
+            if (!key.reset()) {
+                directories.remove(key);
+            }
+            key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return change;
+    }
+
+    private void record(final Change change, final Path dir, final Path path) {
+        final String name = path.getFileName().toString();
+        if (classDirectories.contains(dir) && (name.endsWith(".class") || path.toFile().isDirectory())) {
+            change.classes = true;
+            if (path.toFile().isDirectory()) {
+                try {
+                    watchClasses(path.toFile());
+                } catch (IOException e) {
+                    System.err.println(TestSuite.ERR_PREF + "Failed watching " + path + ": " + e.getMessage());
+                }
+            }
+        } else {
+            change.files.add(path);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        service.close();
+    }
+
+    /**
+     * Changes of watched files.
+     */
+    public static final class Change {
+        private final Set<Path> files = new HashSet<>();
+        private boolean classes;
+        private boolean overflow;
+
+        /**
+         * Checks if a file changed.
+         *
+         * @param file File to check.
+         * @return true, if the file was created, modified or deleted.
+         */
+        public boolean contains(final File file) {
+            return overflow || files.contains(file.getAbsoluteFile().toPath().normalize());
+        }
+
+        /**
+         * Getter of changed bytecode.
+         *
+         * @return true, if the bytecode of the tested program changed.
+         */
+        public boolean isClassesChanged() {
+            return classes || overflow;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Main of a worker JVM started by {@link WorkerPool}. Receives paths of test
+ * files over a local socket, tests them and answers with their results.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class TestWorker {
+
+    private TestWorker() {
+    }
+
+    /**
+     * Connects to the pool and performs tests until the connection is closed.
+     *
+     * @param args Port of the pool, name of the class to be tested, whether
+     *             to isolate it for every file, whether to stream the cases,
+     *             the flush policy of the logs and the command and file
+     *             deadlines of the {@link Watchdog}.
+     */
+    public static void main(final String... args) {
+        if (args.length != 7) {
+            System.err.println(TestSuite.ERR_PREF + "Usage: TestWorker <port> <class> <isolation> <streaming> "
+                    + "<flush> <commandTimeout> <fileTimeout>");
+            System.exit(-1);
+        }
+        final Class<?> testClass;
+        try {
+            testClass = TestWorker.class.getClassLoader().loadClass(args[1]);
+        } catch (ClassNotFoundException e) {
+            System.err.println(TestSuite.ERR_PREF + e.getMessage());
+            System.exit(-1);
+            return;
+        }
+        final boolean isolation = Boolean.parseBoolean(args[2]);
+        final boolean streaming = Boolean.parseBoolean(args[3]);
+        AsyncLog.setFlushInterval(Long.parseLong(args[4]));
+        final Watchdog watchdog = new Watchdog(Long.parseLong(args[5]), Long.parseLong(args[6]));
+        StreamRouter.install();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))) {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                final String testFile;
+                try {
+                    testFile = in.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+                final String logFile = in.readUTF();
+                TestSuite.runFile(testClass, isolation, streaming, watchdog, new File(testFile),
+                        new File(logFile)).writeTo(out);
+                // threads of a timed out file may still run, so the pool replaces this worker
+                final boolean retire = Watchdog.getLeakedCount() > 0;
+                out.writeBoolean(retire);
+                out.flush();
+                if (retire) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(TestSuite.ERR_PREF + "Lost connection to pool: " + e.getMessage());
+        }
+        System.exit(0);
+    }
+}
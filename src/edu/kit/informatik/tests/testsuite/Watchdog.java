@@ -0,0 +1,201 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Watches the thread running the tested program. A file fails if the program
+ * makes no progress, i.e. neither reads a command nor writes a matching output,
+ * within the command deadline or takes longer than the file deadline. The
+ * threads of the program are dumped, interrupted and abandoned, so the next
+ * file can be tested. Deadlines belong to the watchdog, so runners sharing a
+ * JVM can use different ones.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class Watchdog {
+
+    /**
+     * Deadline disabling the check.
+     */
+    public static final long NONE = 0;
+
+    /**
+     * Watchdog waiting as long as the program runs.
+     */
+    public static final Watchdog UNLIMITED = new Watchdog(NONE, NONE);
+
+    private static final long GRACE_MILLIS = 100;
+
+    private static final AtomicInteger LEAKED = new AtomicInteger();
+
+    private final long commandDeadline;
+    private final long fileDeadline;
+
+    /**
+     * Initialises a watchdog.
+     *
+     * @param command Longest time in nanoseconds between two progresses of a
+     *                program or {@link #NONE}.
+     * @param file    Longest time in nanoseconds a file may take or
+     *                {@link #NONE}.
+     */
+    public Watchdog(final long command, final long file) {
+        this.commandDeadline = command;
+        this.fileDeadline = file;
+    }
+
+    /**
+     * Getter of the command deadline.
+     *
+     * @return Longest time in nanoseconds between two progresses or
+     * {@link #NONE}.
+     */
+    public long getCommandDeadline() {
+        return commandDeadline;
+    }
+
+    /**
+     * Getter of the file deadline.
+     *
+     * @return Longest time in nanoseconds a file may take or {@link #NONE}.
+     */
+    public long getFileDeadline() {
+        return fileDeadline;
+    }
+
+    /**
+     * Getter of abandoned threads.
+     *
+     * @return Count of program threads which didn't stop after their file
+     * timed out. They keep running and may share static state with later
+     * files.
+     */
+    public static int getLeakedCount() {
+        return LEAKED.get();
+    }
+
+    /**
+     * Waits until the program thread ended or a deadline expired.
+     *
+     * @param program Thread running the main of the program.
+     * @param channel Channel of the file, providing the time of the last
+     *                progress.
+     * @param start   Time the file was started at, see
+     *                {@link System#nanoTime()}.
+     * @return Description of the expired deadline or null if the program
+     * ended in time.
+     * @throws InterruptedException Will be thrown if interrupted while
+     *                              waiting.
+     */
+    public String await(final Thread program, final CommandChannel channel, final long start)
+            throws InterruptedException {
+        final long command = commandDeadline;
+        final long file = fileDeadline;
+        if (command <= NONE && file <= NONE) {
+            program.join();
+            return null;
+        }
+        while (program.isAlive()) {
+            final long now = System.nanoTime();
+            long remaining = Long.MAX_VALUE;
+            if (file > NONE) {
+                remaining = start + file - now;
+                if (remaining <= 0) {
+                    return "File took longer than " + LatencyHistogram.format(file);
+                }
+            }
+            if (command > NONE) {
+                final long idle = now - channel.getProgressAt();
+                if (idle >= command) {
+                    return "No progress for " + LatencyHistogram.format(idle) + ", deadline: "
+                            + LatencyHistogram.format(command);
+                }
+                remaining = Math.min(remaining, command - idle);
+            }
+            program.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+        }
+        return null;
+    }
+
+    /**
+     * Dumps the stacks of all threads of a program.
+     *
+     * @param group Group containing the threads of the program.
+     * @return Dump like jstack prints it.
+     */
+    public static String dump(final ThreadGroup group) {
+        final StringBuilder dump = new StringBuilder();
+        for (final Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
+            final Thread thread = entry.getKey();
+            if (!group.parentOf(thread.getThreadGroup())) {
+                continue;
+            }
+            dump.append('"').append(thread.getName()).append("\" ").append(thread.getState())
+                    .append(System.lineSeparator());
+            for (final StackTraceElement frame : entry.getValue()) {
+                dump.append("\tat ").append(frame).append(System.lineSeparator());
+            }
+            dump.append(System.lineSeparator());
+        }
+        return dump.toString();
+    }
+
+    /**
+     * Finds the innermost frame of a thread belonging to the program instead
+     * of the JDK.
+     *
+     * @param thread Thread to inspect.
+     * @return Frame or null if the thread is in JDK code only.
+     */
+    public static StackTraceElement programFrame(final Thread thread) {
+        for (final StackTraceElement frame : thread.getStackTrace()) {
+            final String name = frame.getClassName();
+            if (!name.startsWith("java.") && !name.startsWith("javax.") && !name.startsWith("jdk.")
+                    && !name.startsWith("sun.")) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates the group for the threads of a program. The group is a daemon,
+     * so it is destroyed as soon as its last thread ended instead of staying
+     * in its parent for the life of the JVM.
+     *
+     * @param name Name of the group.
+     * @return New daemon group.
+     */
+    @SuppressWarnings("removal")
+    public static ThreadGroup group(final String name) {
+        final ThreadGroup group = new ThreadGroup(name);
+        group.setDaemon(true);
+        return group;
+    }
+
+    /**
+     * Interrupts all threads of a program and gives them a short time to end.
+     * Threads still running afterwards are abandoned.
+     *
+     * @param group Group containing the threads of the program.
+     * @return true, if all threads ended.
+     * @throws InterruptedException Will be thrown if interrupted while
+     *                              waiting.
+     */
+    public static boolean stop(final ThreadGroup group) throws InterruptedException {
+        group.interrupt();
+        final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GRACE_MILLIS);
+        while (group.activeCount() > 0 && System.nanoTime() < end) {
+            Thread.sleep(1);
+        }
+        final int running = group.activeCount();
+        if (running > 0) {
+            LEAKED.addAndGet(running);
+            return false;
+        }
+        return true;
+    }
+}
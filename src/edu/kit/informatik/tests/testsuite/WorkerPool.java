@@ -0,0 +1,208 @@
+package edu.kit.informatik.tests.testsuite;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of started worker JVMs running {@link TestWorker}. Test files are sent
+ * to idle workers over a local socket. Workers are reused as long as they are
+ * alive, a worker dying while testing fails the file and is replaced. Workers
+ * left with running threads of a timed out file are replaced as well.
+ *
+ * @author Moritz Hepp
+ * @version 1.0
+ */
+public final class WorkerPool implements Closeable {
+
+    private static final int CONNECT_TIMEOUT = 30000;
+    private static final long POLL_MILLIS = 100;
+
+    private final Class<?> testClass;
+    private final boolean isolation;
+    private final boolean streaming;
+    private final Watchdog watchdog;
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final List<Worker> all = new ArrayList<>();
+    private final AtomicInteger alive = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Initialises a pool and starts its workers.
+     *
+     * @param size      Count of workers to start.
+     * @param testClass Class the workers should test.
+     * @param isolation true, if the workers should load the class again for
+     *                  every file.
+     * @param streaming true, if the workers should read the cases while
+     *                  testing.
+     * @param watchdog  Watchdog with the deadlines of the files.
+     * @throws IOException Will be thrown if no worker could be started.
+     */
+    public WorkerPool(final int size, final Class<?> testClass, final boolean isolation, final boolean streaming,
+                      final Watchdog watchdog) throws IOException {
+        this.testClass = testClass;
+        this.isolation = isolation;
+        this.streaming = streaming;
+        this.watchdog = watchdog;
+        IOException failure = null;
+        for (int i = 0; i < size; i++) {
+            try {
+                idle.add(start());
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (alive.get() == 0) {
+            throw failure != null ? failure : new IOException("Pool without workers!");
+        }
+    }
+
+    /**
+     * Performs the tests of a file in the next idle worker.
+     *
+     * @param testFile File containing the tests.
+     * @param logFile  File to store the output of this test.
+     * @return Result of the file.
+     * @throws InterruptedException Will be thrown if interrupted while
+     *                              waiting for an idle worker.
+     */
+    public FileResult test(final File testFile, final File logFile) throws InterruptedException {
+        Worker worker = null;
+        while (worker == null) {
+            if (closed || alive.get() == 0) {
+                System.err.println(TestSuite.ERR_PREF + "No worker left to test " + testFile.getName());
+                return FileResult.error(testFile.getName(), "No worker left");
+            }
+            worker = idle.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        try {
+            worker.out.writeUTF(testFile.getAbsolutePath());
+            worker.out.writeUTF(logFile.getAbsolutePath());
+            worker.out.flush();
+            final FileResult result = FileResult.readFrom(worker.in);
+            if (worker.in.readBoolean()) {
+                worker.stop();
+                replace(worker);
+            } else {
+                idle.add(worker);
+            }
+            return result;
+        } catch (IOException e) {
+            final String message = "Worker died while testing " + testFile.getName() + " (exit code "
+                    + worker.stop() + ")";
+            System.err.println(TestSuite.ERR_PREF + message);
+            replace(worker);
+            return FileResult.error(testFile.getName(), message);
+        }
+    }
+
+    /**
+     * Forgets a stopped worker and starts a new one in its place.
+     *
+     * @param dead Stopped worker.
+     */
+    private void replace(final Worker dead) {
+        synchronized (all) {
+            all.remove(dead);
+        }
+        if (!closed) {
+            try {
+                idle.add(start());
+            } catch (IOException e) {
+                System.err.println(TestSuite.ERR_PREF + "Failed replacing worker: " + e.getMessage());
+            }
+        }
+    }
+
+    private Worker start() throws IOException {
+        final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(CONNECT_TIMEOUT);
+            final Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    TestWorker.class.getName(), String.valueOf(server.getLocalPort()), testClass.getName(),
+                    String.valueOf(isolation), String.valueOf(streaming),
+                    String.valueOf(AsyncLog.getFlushInterval()), String.valueOf(watchdog.getCommandDeadline()),
+                    String.valueOf(watchdog.getFileDeadline())).inheritIO().start();
+            try {
+                final Worker worker = new Worker(process, server.accept());
+                synchronized (all) {
+                    all.add(worker);
+                }
+                alive.incrementAndGet();
+                return worker;
+            } catch (IOException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        final List<Worker> workers;
+        synchronized (all) {
+            workers = new ArrayList<>(all);
+        }
+        for (final Worker worker : workers) {
+            worker.stop();
+        }
+    }
+
+    /**
+     * Connection to one worker JVM.
+     */
+    private final class Worker {
+        private final Process process;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private boolean stopped;
+
+        Worker(final Process process, final Socket socket) throws IOException {
+            this.process = process;
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        /**
+         * Closes the connection, so the worker exits, and waits for it.
+         *
+         * @return Exit code of the worker or -1 if it didn't exit in time.
+         */
+        synchronized int stop() {
+            if (!stopped) {
+                stopped = true;
+                alive.decrementAndGet();
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+            try {
+                if (process.waitFor(CONNECT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    return process.exitValue();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            process.destroyForcibly();
+            return -1;
+        }
+    }
+}